@@ -1,5 +1,6 @@
 package autoservice.adapter.controller;
 
+import autoservice.adapter.service.PasswordHashingBusyException;
 import autoservice.adapter.service.impl.AuthenticationService;
 import autoservice.domen.dto.SignInRequest;
 import autoservice.domen.dto.SignUpRequest;
@@ -8,6 +9,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -31,4 +36,14 @@ public class AuthController {
     public JwtAuthenticationResponse signIn(@RequestBody @Valid SignInRequest request) {
         return authenticationService.signIn(request);
     }
+
+    /**
+     * Перегрузка хеширования паролей: 503 с Retry-After, чтобы клиент повторил вход позже
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<String> handleBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
 }
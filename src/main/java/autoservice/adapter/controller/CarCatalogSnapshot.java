@@ -0,0 +1,118 @@
+package autoservice.adapter.controller;
+
+import autoservice.adapter.repository.impl.QueryResultCache;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.CarColumns;
+import autoservice.adapter.service.CarService;
+import autoservice.domen.dto.PageResponse;
+import autoservice.domen.dto.mapper.CarMapper;
+import autoservice.domen.model.enums.CarState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Первая страница автомобилей в продаже, уже сериализованная в JSON. Её запрашивают чаще всего,
+ * поэтому ответ отдаётся готовыми байтами без запроса в базу и без Jackson.
+ * Снимок привязан к версии таблицы car в {@link QueryResultCache}: любая запись в автомобили
+ * делает его устаревшим, следующий запрос строит новый и подменяет целиком.
+ * ETag - хеш содержимого, поэтому он одинаков на всех экземплярах и после перезапуска
+ */
+@Component
+public class CarCatalogSnapshot {
+
+    /**
+     * Размер первой страницы по умолчанию в {@link CarController#getCarsForSale}
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private static final String TABLE = "car";
+
+    private final CarService carService;
+    private final CarMapper carMapper;
+    private final QueryResultCache queryCache;
+    private final boolean gzip;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private volatile Snapshot current;
+
+    public CarCatalogSnapshot(CarService carService, CarMapper carMapper, QueryResultCache queryCache,
+                              @Value("${cars.catalog.gzip:true}") boolean gzip) {
+        this.carService = carService;
+        this.carMapper = carMapper;
+        this.queryCache = queryCache;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Актуальный снимок. Перестраивается только после изменения автомобилей
+     *
+     * @return JSON первой страницы, его gzip (если включён) и ETag
+     */
+    public Snapshot get() {
+        var snapshot = current;
+        if (snapshot != null && snapshot.version == queryCache.version(TABLE)) return snapshot;
+        return rebuild();
+    }
+
+    private synchronized Snapshot rebuild() {
+        // Версия читается до запроса: запись во время сборки оставит снимок устаревшим
+        var version = queryCache.version(TABLE);
+        var snapshot = current;
+        if (snapshot != null && snapshot.version == version) return snapshot;
+
+        var page = carService.getPage(CarColumns.STATE.eq(CarState.FOR_SALE), PageRequest.of(null, PAGE_SIZE));
+        var json = serialize(new PageResponse<>(carMapper.toResponseList(page.items()), page.nextCursor()));
+        var hash = hash(json);
+        snapshot = new Snapshot(version, json, gzip ? gzip(json) : null,
+                "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+        current = snapshot;
+        return snapshot;
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        var bytes = new ByteArrayOutputStream(json.length / 4);
+        try (var out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param version  версия таблицы car, для которой построен снимок
+     * @param json     тело ответа
+     * @param gzipped  тело, сжатое gzip, или null
+     * @param etag     ETag несжатого тела
+     * @param gzipEtag ETag сжатого тела: у разных кодировок одного ресурса строгие ETag различаются
+     */
+    public record Snapshot(long version, byte[] json, byte[] gzipped, String etag, String gzipEtag) {
+    }
+}
@@ -1,21 +1,32 @@
 package autoservice.adapter.controller;
 
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.CarColumns;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.adapter.service.CarService;
 import autoservice.domen.dto.CarRequest;
 import autoservice.domen.dto.CarResponse;
+import autoservice.domen.dto.OnUpdate;
+import autoservice.domen.dto.PageResponse;
 import autoservice.domen.dto.SearchRequest;
 import autoservice.domen.dto.mapper.CarMapper;
+import autoservice.domen.model.Car;
 import autoservice.domen.model.enums.CarState;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -28,23 +39,59 @@ public class CarController {
 
     CarMapper carMapper;
     CarService carService;
+    JsonStreamWriter jsonStreamWriter;
+    CarCatalogSnapshot carCatalogSnapshot;
 
     @GetMapping("/getAllCars")
     @Operation(summary = "Получение списка всех автомобилей")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<CarResponse>> getAllCars() {
-        var cars = carService.getAll();
-        var carResponses = carMapper.toResponseList(cars);
-        return ResponseEntity.ok(carResponses);
+    public ResponseEntity<PageResponse<CarResponse>> getAllCars(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort) {
+        var request = PageRequest.of(cursor, size, CarColumns.sortKey(sort));
+        var page = carService.getPage(Specification.all(), request);
+        return ResponseEntity.ok(new PageResponse<>(carMapper.toResponseList(page.items()), page.nextCursor()));
     }
 
+    /**
+     * Первая страница по умолчанию отдаётся готовыми байтами из {@link CarCatalogSnapshot}
+     * со строгим ETag. If-None-Match с тем же ETag получает 304 без базы и без сериализации
+     */
     @GetMapping("/getCarsForSale")
     @Operation(summary = "Получение списка автомобилей доступных для покупки")
     @Secured({"ADMIN", "MANAGER", "CLIENT"})
-    public ResponseEntity<List<CarResponse>> getCarsForSale() {
-        var cars = carService.getEntitiesByFilter(car -> car.getState().equals(CarState.FOR_SALE));
-        var carResponses = carMapper.toResponseList(cars);
-        return ResponseEntity.ok(carResponses);
+    public ResponseEntity<?> getCarsForSale(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (size == CarCatalogSnapshot.PAGE_SIZE && cursor == null && sort == null) {
+            var snapshot = carCatalogSnapshot.get();
+            var gzip = snapshot.gzipped() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+            var response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                return response.eTag(snapshot.gzipEtag())
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .body(snapshot.gzipped());
+            }
+            return response.eTag(snapshot.etag()).body(snapshot.json());
+        }
+        var request = PageRequest.of(cursor, size, CarColumns.sortKey(sort));
+        var page = carService.getPage(CarColumns.STATE.eq(CarState.FOR_SALE), request);
+        return ResponseEntity.ok(new PageResponse<>(carMapper.toResponseList(page.items()), page.nextCursor()));
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, JsonStreamWriter.NDJSON_VALUE})
+    @Operation(summary = "Потоковая выгрузка автомобилей (JSON-массив или NDJSON)")
+    @Secured({"ADMIN", "MANAGER"})
+    public void streamCars(@RequestParam(required = false) CarState state,
+                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                           HttpServletResponse response) throws IOException {
+        var specification = state == null ? Specification.<Car>all() : CarColumns.STATE.eq(state);
+        jsonStreamWriter.write(carService.streamByFilter(specification), carMapper::toResponse, accept, response);
     }
 
     @PostMapping("/getSearch")
@@ -57,13 +104,17 @@ public class CarController {
         return ResponseEntity.ok(carResponses);
     }
 
+    /**
+     * ETag строится из id и версии автомобиля. Автомобиль берётся из кэша по id, поэтому
+     * повторный запрос с If-None-Match обычно получает 304 без базы и без сериализации
+     */
     @GetMapping("/{id}")
     @Operation(summary = "Получение автомобиля по ID")
     @Secured({"ADMIN", "MANAGER"})
     public ResponseEntity<CarResponse> getCarById(@PathVariable int id) {
         var car = carService.getById(id);
         var carResponse = carMapper.toResponse(car);
-        return ResponseEntity.ok(carResponse);
+        return ResponseEntity.ok().eTag(etag(car)).body(carResponse);
     }
 
     @GetMapping("/forSale/{id}")
@@ -73,7 +124,7 @@ public class CarController {
         var car = carService.getById(id);
         if (car.getState() != CarState.FOR_SALE) return ResponseEntity.notFound().build();
         var carResponse = carMapper.toResponse(car);
-        return ResponseEntity.ok(carResponse);
+        return ResponseEntity.ok().eTag(etag(car)).body(carResponse);
     }
 
     @PostMapping
@@ -86,10 +137,19 @@ public class CarController {
         return ResponseEntity.ok(carResponse);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Пакетное создание автомобилей")
+    @Secured("ADMIN")
+    public ResponseEntity<List<CarResponse>> createCars(@RequestBody @Valid List<@Valid CarRequest> carRequests) {
+        var cars = carMapper.toEntityList(carRequests);
+        var createdCars = carService.createAll(cars);
+        return ResponseEntity.ok(carMapper.toResponseList(createdCars));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Обновление информации об автомобиле")
     @Secured("ADMIN")
-    public ResponseEntity<Void> updateCar(@PathVariable int id, @RequestBody @Valid CarRequest carRequest) {
+    public ResponseEntity<Void> updateCar(@PathVariable int id, @RequestBody @Validated(OnUpdate.class) CarRequest carRequest) {
         var car = carMapper.toEntity(carRequest);
         car.setId(id);
         carService.update(car);
@@ -100,8 +160,11 @@ public class CarController {
     @Operation(summary = "Удаление автомобиля по ID")
     @Secured("ADMIN")
     public ResponseEntity<Void> deleteCar(@PathVariable int id) {
-        var car = carService.getById(id);
-        carService.delete(car);
+        carService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static String etag(Car car) {
+        return "\"car-" + car.getId() + "-" + car.getVersion() + "\"";
+    }
 }
@@ -0,0 +1,39 @@
+package autoservice.adapter.controller;
+
+import autoservice.adapter.service.CarService;
+import autoservice.domen.dto.CarImportResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Tag(name = "Импорт автомобилей")
+@Secured("ADMIN")
+@RequestMapping("/admin/cars")
+public class CarImportController {
+
+    CarService carService;
+
+    /**
+     * Тело запроса читается напрямую из сервлета, чтобы файл не буферизовался целиком
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    @Operation(summary = "Импорт автомобилей из CSV: make,model,year,price,state с заголовком")
+    public ResponseEntity<CarImportResponse> importCars(HttpServletRequest request) throws IOException {
+        try (var csv = request.getInputStream()) {
+            return ResponseEntity.ok(carService.importCsv(csv));
+        }
+    }
+}
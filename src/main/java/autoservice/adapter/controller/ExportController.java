@@ -0,0 +1,48 @@
+package autoservice.adapter.controller;
+
+import autoservice.adapter.repository.ExportTable;
+import autoservice.adapter.service.impl.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Tag(name = "Выгрузки")
+@Secured("ADMIN")
+@RequestMapping("/admin/export")
+public class ExportController {
+
+    ExportService exportService;
+
+    @GetMapping("/{table}")
+    @Operation(summary = "Выгрузка cars, users, orders или service-orders в CSV, gzip=true - в сжатом виде")
+    public void export(@PathVariable String table,
+                       @RequestParam(defaultValue = "false") boolean gzip,
+                       HttpServletResponse response) throws IOException {
+        var exportTable = ExportTable.byPath(table).orElse(null);
+        if (exportTable == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        var fileName = exportTable.getPath() + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
+        exportService.exportCsv(exportTable, response.getOutputStream(), gzip);
+    }
+}
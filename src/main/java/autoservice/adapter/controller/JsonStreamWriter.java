@@ -0,0 +1,61 @@
+package autoservice.adapter.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Построчная запись больших выборок в ответ: JSON-массив или NDJSON, если клиент прислал
+ * {@code Accept: application/x-ndjson}. Сущности маппятся и пишутся по одной, в памяти
+ * не собирается ни список сущностей, ни список DTO
+ */
+@Component
+public class JsonStreamWriter {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Сколько строк писать между сбросами буфера в сокет
+     */
+    private static final int FLUSH_EVERY = 256;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    /**
+     * Записывает стрим в ответ и закрывает его
+     *
+     * @param entities стрим сущностей из репозитория
+     * @param mapper   маппер сущности в DTO
+     * @param accept   значение заголовка Accept
+     * @param response ответ сервлета
+     */
+    public <T, R> void write(Stream<T> entities, Function<? super T, ? extends R> mapper,
+                             String accept, HttpServletResponse response) throws IOException {
+        var ndjson = accept != null && accept.contains(NDJSON_VALUE);
+        response.setContentType(ndjson ? NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try (entities;
+             var generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+            var written = 0;
+            var iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(mapper.apply(iterator.next()));
+                if (ndjson) generator.writeRaw('\n');
+                if (++written == 1 || written % FLUSH_EVERY == 0) generator.flush();
+            }
+            if (!ndjson) generator.writeEndArray();
+        }
+    }
+}
@@ -1,21 +1,32 @@
 package autoservice.adapter.controller;
 
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
+import autoservice.adapter.repository.specification.UserColumns;
 import autoservice.adapter.service.impl.UserService;
+import autoservice.domen.dto.OnUpdate;
+import autoservice.domen.dto.PageResponse;
 import autoservice.domen.dto.SearchRequest;
 import autoservice.domen.dto.UserRequest;
 import autoservice.domen.dto.UserResponse;
 import autoservice.domen.dto.mapper.UserMapper;
+import autoservice.domen.model.User;
 import autoservice.domen.model.enums.Role;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -28,21 +39,36 @@ public class PeopleController {
 
     UserMapper userMapper;
     UserService userService;
+    JsonStreamWriter jsonStreamWriter;
 
     @GetMapping("/getPeople")
     @Operation(summary = "Получение списка людей")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<UserResponse>> getPeople() {
-        var users = userService.getAll();
-        return ResponseEntity.ok(userMapper.toResponseList(users));
+    public ResponseEntity<PageResponse<UserResponse>> getPeople(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        var page = userService.getPage(Specification.all(), PageRequest.of(cursor, size));
+        return ResponseEntity.ok(new PageResponse<>(userMapper.toResponseList(page.items()), page.nextCursor()));
     }
 
     @GetMapping("/getClients")
     @Operation(summary = "Получение списка клиентов")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<UserResponse>> getClients() {
-        var users = userService.getEntitiesByFilter(user -> user.getRole().equals(Role.CLIENT));
-        return ResponseEntity.ok(userMapper.toResponseList(users));
+    public ResponseEntity<PageResponse<UserResponse>> getClients(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        var page = userService.getPage(UserColumns.ROLE.eq(Role.CLIENT), PageRequest.of(cursor, size));
+        return ResponseEntity.ok(new PageResponse<>(userMapper.toResponseList(page.items()), page.nextCursor()));
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, JsonStreamWriter.NDJSON_VALUE})
+    @Operation(summary = "Потоковая выгрузка людей (JSON-массив или NDJSON)")
+    @Secured({"ADMIN", "MANAGER"})
+    public void streamPeople(@RequestParam(required = false) Role role,
+                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletResponse response) throws IOException {
+        var specification = role == null ? Specification.<User>all() : UserColumns.ROLE.eq(role);
+        jsonStreamWriter.write(userService.streamByFilter(specification), userMapper::toResponse, accept, response);
     }
 
     @PostMapping("/getSearch")
@@ -73,7 +99,7 @@ public class PeopleController {
     @PutMapping("/{id}")
     @Operation(summary = "Обновление информации о пользователе")
     @Secured("ADMIN")
-    public ResponseEntity<Void> updateUser(@PathVariable int id, @RequestBody @Valid UserRequest userRequest) {
+    public ResponseEntity<Void> updateUser(@PathVariable int id, @RequestBody @Validated(OnUpdate.class) UserRequest userRequest) {
         var user = userMapper.toEntity(userRequest);
         user.setId(id);
         userService.update(user);
@@ -84,8 +110,7 @@ public class PeopleController {
     @Operation(summary = "Удаление пользователя по ID")
     @Secured("ADMIN")
     public ResponseEntity<Void> deleteUser(@PathVariable int id) {
-        var user = userService.getById(id);
-        userService.delete(user);
+        userService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
@@ -1,22 +1,34 @@
 package autoservice.adapter.controller;
 
+import autoservice.adapter.repository.FetchPlan;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.OrderColumns;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.adapter.service.MyOrderService;
+import autoservice.domen.dto.OnUpdate;
 import autoservice.domen.dto.SalesOrderRequest;
 import autoservice.domen.dto.SalesOrderResponse;
+import autoservice.domen.dto.PageResponse;
 import autoservice.domen.dto.SearchRequest;
 import autoservice.domen.dto.mapper.SalesOrderMapper;
+import autoservice.domen.model.Order;
 import autoservice.domen.model.SalesOrder;
 import autoservice.domen.model.enums.OrderStatus;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -29,23 +41,39 @@ public class SalesOrderController {
 
     SalesOrderMapper salesOrderMapper;
     MyOrderService<SalesOrder> salesOrderService;
+    JsonStreamWriter jsonStreamWriter;
 
     @GetMapping("/getAllOrders")
     @Operation(summary = "Получение списка всех заказов")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<SalesOrderResponse>> getAllOrders() {
-        var orders = salesOrderService.getAll();
-        var orderResponses = salesOrderMapper.toResponseList(orders);
-        return ResponseEntity.ok(orderResponses);
+    public ResponseEntity<PageResponse<SalesOrderResponse>> getAllOrders(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        var page = salesOrderService.getPage(Specification.all(), PageRequest.of(cursor, size), FetchPlan.ORDER);
+        return ResponseEntity.ok(new PageResponse<>(salesOrderMapper.toResponseList(page.items()), page.nextCursor()));
     }
 
     @GetMapping("/getOrdersByStatus")
     @Operation(summary = "Получение списка заказов по статусу")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<SalesOrderResponse>> getOrdersByStatus(@RequestParam OrderStatus status) {
-        var orders = salesOrderService.getEntitiesByFilter(order -> order.getStatus().equals(status));
-        var orderResponses = salesOrderMapper.toResponseList(orders);
-        return ResponseEntity.ok(orderResponses);
+    public ResponseEntity<PageResponse<SalesOrderResponse>> getOrdersByStatus(
+            @RequestParam OrderStatus status,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        var request = PageRequest.of(cursor, size);
+        var page = salesOrderService.getPage(OrderColumns.STATUS.eq(status), request, FetchPlan.ORDER);
+        return ResponseEntity.ok(new PageResponse<>(salesOrderMapper.toResponseList(page.items()), page.nextCursor()));
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, JsonStreamWriter.NDJSON_VALUE})
+    @Operation(summary = "Потоковая выгрузка заказов (JSON-массив или NDJSON)")
+    @Secured({"ADMIN", "MANAGER"})
+    public void streamOrders(@RequestParam(required = false) OrderStatus status,
+                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletResponse response) throws IOException {
+        var specification = status == null ? Specification.<Order>all() : OrderColumns.STATUS.eq(status);
+        var orders = salesOrderService.streamByFilter(specification, FetchPlan.ORDER);
+        jsonStreamWriter.write(orders, salesOrderMapper::toResponse, accept, response);
     }
 
     @PostMapping("/search")
@@ -53,7 +81,7 @@ public class SalesOrderController {
     @Secured({"ADMIN", "MANAGER"})
     public ResponseEntity<List<SalesOrderResponse>> searchOrders(@RequestBody @Valid SearchRequest searchRequest) {
         var searchSource = searchRequest.getSearchSource();
-        var orders = salesOrderService.getByString(salesOrderService.getAll(), searchSource);
+        var orders = salesOrderService.getByString(salesOrderService.getAll(FetchPlan.ORDER_CUSTOMER), searchSource);
         var orderResponses = salesOrderMapper.toResponseList(orders);
         return ResponseEntity.ok(orderResponses);
     }
@@ -62,7 +90,7 @@ public class SalesOrderController {
     @Operation(summary = "Получение заказа по ID")
     @Secured({"ADMIN", "MANAGER"})
     public ResponseEntity<SalesOrderResponse> getOrderById(@PathVariable int id) {
-        var order = salesOrderService.getById(id);
+        var order = salesOrderService.getById(id, FetchPlan.ORDER);
         var orderResponse = salesOrderMapper.toResponse(order);
         return ResponseEntity.ok(orderResponse);
     }
@@ -77,10 +105,20 @@ public class SalesOrderController {
         return ResponseEntity.ok(orderResponse);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Пакетное создание заказов")
+    @Secured("ADMIN")
+    public ResponseEntity<List<SalesOrderResponse>> createOrders(
+            @RequestBody @Valid List<@Valid SalesOrderRequest> salesOrderRequests) {
+        var orders = salesOrderMapper.toEntityList(salesOrderRequests);
+        var createdOrders = salesOrderService.createAll(orders);
+        return ResponseEntity.ok(salesOrderMapper.toResponseList(createdOrders));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Обновление информации о заказе")
     @Secured("ADMIN")
-    public ResponseEntity<Void> updateOrder(@PathVariable int id, @RequestBody @Valid SalesOrderRequest salesOrderRequest) {
+    public ResponseEntity<Void> updateOrder(@PathVariable int id, @RequestBody @Validated(OnUpdate.class) SalesOrderRequest salesOrderRequest) {
         var order = salesOrderMapper.toEntity(salesOrderRequest);
         order.setId(id);
         salesOrderService.update(order);
@@ -91,8 +129,7 @@ public class SalesOrderController {
     @Operation(summary = "Удаление заказа по ID")
     @Secured("ADMIN")
     public ResponseEntity<Void> deleteOrder(@PathVariable int id) {
-        var order = salesOrderService.getById(id);
-        salesOrderService.delete(order);
+        salesOrderService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 }
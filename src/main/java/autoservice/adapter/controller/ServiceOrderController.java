@@ -1,22 +1,34 @@
 package autoservice.adapter.controller;
 
+import autoservice.adapter.repository.FetchPlan;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.OrderColumns;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.adapter.service.MyOrderService;
+import autoservice.domen.dto.OnUpdate;
 import autoservice.domen.dto.ServiceOrderRequest;
 import autoservice.domen.dto.ServiceOrderResponse;
+import autoservice.domen.dto.PageResponse;
 import autoservice.domen.dto.SearchRequest;
 import autoservice.domen.dto.mapper.ServiceOrderMapper;
+import autoservice.domen.model.Order;
 import autoservice.domen.model.ServiceOrder;
 import autoservice.domen.model.enums.OrderStatus;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -29,23 +41,39 @@ public class ServiceOrderController {
 
     ServiceOrderMapper serviceOrderMapper;
     MyOrderService<ServiceOrder> serviceOrderService;
+    JsonStreamWriter jsonStreamWriter;
 
     @GetMapping("/getAllServiceOrders")
     @Operation(summary = "Получение списка всех заказов на обслуживание")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<ServiceOrderResponse>> getAllServiceOrders() {
-        var orders = serviceOrderService.getAll();
-        var orderResponses = serviceOrderMapper.toResponseList(orders);
-        return ResponseEntity.ok(orderResponses);
+    public ResponseEntity<PageResponse<ServiceOrderResponse>> getAllServiceOrders(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        var page = serviceOrderService.getPage(Specification.all(), PageRequest.of(cursor, size), FetchPlan.ORDER);
+        return ResponseEntity.ok(new PageResponse<>(serviceOrderMapper.toResponseList(page.items()), page.nextCursor()));
     }
 
     @GetMapping("/getServiceOrdersByStatus")
     @Operation(summary = "Получение списка заказов на обслуживание по статусу")
     @Secured({"ADMIN", "MANAGER"})
-    public ResponseEntity<List<ServiceOrderResponse>> getServiceOrdersByStatus(@RequestParam OrderStatus status) {
-        var orders = serviceOrderService.getEntitiesByFilter(order -> order.getStatus().equals(status));
-        var orderResponses = serviceOrderMapper.toResponseList(orders);
-        return ResponseEntity.ok(orderResponses);
+    public ResponseEntity<PageResponse<ServiceOrderResponse>> getServiceOrdersByStatus(
+            @RequestParam OrderStatus status,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        var request = PageRequest.of(cursor, size);
+        var page = serviceOrderService.getPage(OrderColumns.STATUS.eq(status), request, FetchPlan.ORDER);
+        return ResponseEntity.ok(new PageResponse<>(serviceOrderMapper.toResponseList(page.items()), page.nextCursor()));
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, JsonStreamWriter.NDJSON_VALUE})
+    @Operation(summary = "Потоковая выгрузка заказов на обслуживание (JSON-массив или NDJSON)")
+    @Secured({"ADMIN", "MANAGER"})
+    public void streamServiceOrders(@RequestParam(required = false) OrderStatus status,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                    HttpServletResponse response) throws IOException {
+        var specification = status == null ? Specification.<Order>all() : OrderColumns.STATUS.eq(status);
+        var orders = serviceOrderService.streamByFilter(specification, FetchPlan.ORDER);
+        jsonStreamWriter.write(orders, serviceOrderMapper::toResponse, accept, response);
     }
 
     @PostMapping("/search")
@@ -53,7 +81,7 @@ public class ServiceOrderController {
     @Secured({"ADMIN", "MANAGER"})
     public ResponseEntity<List<ServiceOrderResponse>> searchServiceOrders(@RequestBody @Valid SearchRequest searchRequest) {
         var searchSource = searchRequest.getSearchSource();
-        var orders = serviceOrderService.getByString(serviceOrderService.getAll(), searchSource);
+        var orders = serviceOrderService.getByString(serviceOrderService.getAll(FetchPlan.ORDER_CUSTOMER), searchSource);
         var orderResponses = serviceOrderMapper.toResponseList(orders);
         return ResponseEntity.ok(orderResponses);
     }
@@ -62,7 +90,7 @@ public class ServiceOrderController {
     @Operation(summary = "Получение заказа на обслуживание по ID")
     @Secured({"ADMIN", "MANAGER"})
     public ResponseEntity<ServiceOrderResponse> getServiceOrderById(@PathVariable int id) {
-        var order = serviceOrderService.getById(id);
+        var order = serviceOrderService.getById(id, FetchPlan.ORDER);
         var orderResponse = serviceOrderMapper.toResponse(order);
         return ResponseEntity.ok(orderResponse);
     }
@@ -80,7 +108,7 @@ public class ServiceOrderController {
     @PutMapping("/{id}")
     @Operation(summary = "Обновление информации о заказе на обслуживание")
     @Secured("ADMIN")
-    public ResponseEntity<Void> updateServiceOrder(@PathVariable int id, @RequestBody @Valid ServiceOrderRequest serviceOrderRequest) {
+    public ResponseEntity<Void> updateServiceOrder(@PathVariable int id, @RequestBody @Validated(OnUpdate.class) ServiceOrderRequest serviceOrderRequest) {
         var order = serviceOrderMapper.toEntity(serviceOrderRequest);
         order.setId(id);
         serviceOrderService.update(order);
@@ -91,8 +119,7 @@ public class ServiceOrderController {
     @Operation(summary = "Удаление заказа на обслуживание по ID")
     @Secured("ADMIN")
     public ResponseEntity<Void> deleteServiceOrder(@PathVariable int id) {
-        var order = serviceOrderService.getById(id);
-        serviceOrderService.delete(order);
+        serviceOrderService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -1,7 +1,12 @@
 package autoservice.adapter.repository;
 
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 
@@ -9,16 +14,73 @@ public interface CRUDRepository<T> {
 
     Optional<T> create(T object);
 
+    /**
+     * Пакетное создание записей многострочными INSERT в одной транзакции
+     *
+     * @param objects новые записи
+     * @return созданные записи с проставленными id, в исходном порядке
+     */
+    List<T> createAll(Collection<T> objects);
+
     int delete(T object);
 
+    /**
+     * @return число удалённых строк, 0 - записи с таким id нет
+     */
+    int deleteById(int id);
+
+    /**
+     * Обновление с проверкой версии: UPDATE ... WHERE id = ? AND version = ?.
+     * При успехе версия в базе и в объекте увеличивается на единицу
+     *
+     * @return число обновлённых строк, 0 - записи с таким id нет или её версия уже другая
+     */
     int update(T object);
 
+    /**
+     * Обновление через UPDATE ... RETURNING: запись после обновления за один запрос.
+     * Версия проверяется так же, как в {@link #update(Object)}
+     *
+     * @return обновлённая запись или пусто, если записи с таким id нет или её версия уже другая
+     */
+    Optional<T> updateReturning(T object);
+
+    /**
+     * Вставка или замена через INSERT ... ON CONFLICT (id) DO UPDATE ... RETURNING.
+     * Запись без id просто создаётся. Версия не проверяется, существующая запись получает следующую.
+     * Последовательность id поднимается до вставленного id, чтобы следующая вставка без id не упёрлась в него
+     *
+     * @return сохранённая запись
+     */
+    Optional<T> upsert(T object);
+
     boolean existsById(int id);
 
     Optional<T> findById(int id);
 
+    /**
+     * Потоковая выборка всех записей. Держит соединение до закрытия стрима,
+     * поэтому стрим нужно закрывать (try-with-resources)
+     *
+     * @return ленивый стрим записей
+     */
     Stream<T> findAll();
 
-    Stream<T> findByFilter(Predicate<T> predicate);
+    /**
+     * Потоковая выборка по условию. Как и {@link #findAll()}, стрим нужно закрывать
+     *
+     * @param specification условие выборки
+     * @return ленивый стрим записей
+     */
+    Stream<T> findByFilter(Specification<? super T> specification);
+
+    /**
+     * Постраничная выборка по ключу, стоимость не зависит от глубины страницы
+     *
+     * @param specification условие выборки
+     * @param request       размер страницы, курсор и ключ сортировки
+     * @return страница и курсор следующей
+     */
+    Page<T> findPage(Specification<? super T> specification, PageRequest<? super T> request);
 
 }
@@ -0,0 +1,14 @@
+package autoservice.adapter.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Файл импорта не удалось разобрать как CSV
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class CarImportException extends RuntimeException {
+    public CarImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
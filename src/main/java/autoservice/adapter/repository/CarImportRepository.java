@@ -0,0 +1,18 @@
+package autoservice.adapter.repository;
+
+import autoservice.domen.dto.CarImportResponse;
+
+import java.io.InputStream;
+
+public interface CarImportRepository {
+
+    /**
+     * Импорт CSV с колонками make, model, year, price, state и строкой заголовка.
+     * Файл потоком уходит в PostgreSQL через COPY, проверка и перенос строк выполняются в базе
+     *
+     * @param csv         содержимое файла
+     * @param rejectLimit сколько отклонённых строк вернуть с причинами
+     * @return число добавленных и отклонённых строк
+     */
+    CarImportResponse importCsv(InputStream csv, int rejectLimit);
+}
@@ -2,7 +2,29 @@ package autoservice.adapter.repository;
 
 
 import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+
+import java.util.Collection;
+import java.util.List;
 
 
 public interface CarRepository extends CRUDRepository<Car> {
+
+    /**
+     * Смена состояния сразу у набора автомобилей одним запросом
+     *
+     * @param ids   id автомобилей
+     * @param state новое состояние
+     * @return обновлённые автомобили
+     */
+    List<Car> updateState(Collection<Integer> ids, CarState state);
+
+    /**
+     * Актуальная строка автомобиля, изменённого в обход этого репозитория
+     * (например, CTE заказа, который занимает автомобиль). Без кэша ничего не делает
+     *
+     * @param car автомобиль, как его вернула база после изменения
+     */
+    default void refresh(Car car) {
+    }
 }
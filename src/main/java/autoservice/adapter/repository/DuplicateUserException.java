@@ -0,0 +1,21 @@
+package autoservice.adapter.repository;
+
+/**
+ * Вставка или изменение пользователя нарушили уникальный индекс: username или email уже заняты
+ */
+public class DuplicateUserException extends RuntimeException {
+
+    private final String field;
+
+    public DuplicateUserException(String field, Throwable cause) {
+        super("Значение поля " + field + " уже занято", cause);
+        this.field = field;
+    }
+
+    /**
+     * @return поле, по которому совпал пользователь: username или email
+     */
+    public String getField() {
+        return field;
+    }
+}
@@ -0,0 +1,16 @@
+package autoservice.adapter.repository;
+
+import java.io.OutputStream;
+
+public interface ExportRepository {
+
+    /**
+     * Выгрузка таблицы в CSV с заголовком через COPY ... TO STDOUT. Байты из PostgreSQL
+     * пишутся в поток по мере получения, запись в медленный поток притормаживает чтение из базы
+     *
+     * @param table что выгружать
+     * @param out   куда писать CSV
+     * @return число выгруженных строк
+     */
+    long copyCsv(ExportTable table, OutputStream out);
+}
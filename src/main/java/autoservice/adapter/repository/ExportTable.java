@@ -0,0 +1,36 @@
+package autoservice.adapter.repository;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Таблицы, доступные для выгрузки, и запросы выгрузки. Пароли пользователей не выгружаются
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public enum ExportTable {
+    CARS("cars",
+            "SELECT id, make, model, year, price, state FROM car_service.car ORDER BY id"),
+    USERS("users",
+            "SELECT id, username, name, surname, phone, role, email FROM car_service.user ORDER BY id"),
+    ORDERS("orders",
+            "SELECT id, customer_id, car_id, date, status FROM car_service.sales_order ORDER BY id"),
+    SERVICE_ORDERS("service-orders",
+            "SELECT id, customer_id, car_id, date, status FROM car_service.service_order ORDER BY id");
+
+    /**
+     * Имя в адресе выгрузки и в имени файла
+     */
+    String path;
+    String query;
+
+    public static Optional<ExportTable> byPath(String path) {
+        return Arrays.stream(values()).filter(table -> table.path.equals(path)).findFirst();
+    }
+}
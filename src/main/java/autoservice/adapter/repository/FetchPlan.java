@@ -0,0 +1,31 @@
+package autoservice.adapter.repository;
+
+/**
+ * План загрузки заказа: какие связанные сущности подтягиваются тем же запросом через JOIN.
+ * Методы репозитория без плана используют {@link #ORDER}, JOIN вызывающий запрашивает явно
+ */
+public enum FetchPlan {
+    /**
+     * Только таблица заказов, клиент и автомобиль остаются ленивыми ссылками
+     */
+    ORDER(false, false),
+    ORDER_CUSTOMER(true, false),
+    ORDER_CAR(false, true),
+    ORDER_CUSTOMER_CAR(true, true);
+
+    private final boolean customer;
+    private final boolean car;
+
+    FetchPlan(boolean customer, boolean car) {
+        this.customer = customer;
+        this.car = car;
+    }
+
+    public boolean includesCustomer() {
+        return customer;
+    }
+
+    public boolean includesCar() {
+        return car;
+    }
+}
@@ -1,7 +1,47 @@
 package autoservice.adapter.repository;
 
-
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.domen.model.SalesOrder;
+import autoservice.domen.model.enums.CarState;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends CRUDRepository<SalesOrder> {
+
+    /**
+     * Создание заказа с захватом автомобиля одним запросом: UPDATE автомобиля и INSERT заказа
+     * в data-modifying CTE. Заказ вставляется, только если автомобиль был в одном из допустимых состояний,
+     * конкурирующий запрос после блокировки строки автомобиля видит новое состояние и ничего не вставляет
+     *
+     * @param order     новый заказ
+     * @param available состояния, из которых автомобиль можно занять
+     * @param claimed   состояние автомобиля после захвата
+     * @return созданный заказ или пусто, если автомобиля нет или он уже занят
+     */
+    Optional<SalesOrder> createClaimingCar(SalesOrder order, Collection<CarState> available, CarState claimed);
+
+    /**
+     * Пакетная версия {@link #createClaimingCar}: все автомобили пакета занимаются одним UPDATE,
+     * заказы вставляются многострочными INSERT, всё в одной транзакции.
+     * Если хотя бы один автомобиль не найден или не в допустимом состоянии, не меняется ничего
+     *
+     * @param orders    новые заказы
+     * @param available состояния, из которых автомобиль можно занять
+     * @param claimed   состояние автомобилей после захвата
+     * @return созданные заказы в исходном порядке или пусто, если занять удалось не все автомобили
+     */
+    Optional<List<SalesOrder>> createAllClaimingCars(Collection<SalesOrder> orders, Collection<CarState> available, CarState claimed);
+
+    Optional<SalesOrder> findById(int id, FetchPlan plan);
+
+    Stream<SalesOrder> findAll(FetchPlan plan);
+
+    Stream<SalesOrder> findByFilter(Specification<? super SalesOrder> specification, FetchPlan plan);
+
+    Page<SalesOrder> findPage(Specification<? super SalesOrder> specification, PageRequest<? super SalesOrder> request, FetchPlan plan);
 }
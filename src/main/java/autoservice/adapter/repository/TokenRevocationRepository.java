@@ -0,0 +1,29 @@
+package autoservice.adapter.repository;
+
+import java.time.Instant;
+import java.util.Map;
+
+public interface TokenRevocationRepository {
+
+    /**
+     * Отзыв токенов пользователя, выданных до указанной версии пользователя.
+     * У пользователя одна строка: версия в ней только растёт, время отзыва обновляется
+     *
+     * @param userId     id пользователя
+     * @param minVersion минимальная версия пользователя в действующем токене
+     */
+    void revoke(int userId, int minVersion);
+
+    /**
+     * @return минимальная действующая версия токена по id пользователя
+     */
+    Map<Integer, Integer> findMinVersions();
+
+    /**
+     * Удаление отзывов, после которых все затронутые токены уже истекли
+     *
+     * @param threshold граница времени последнего отзыва
+     * @return число удалённых строк
+     */
+    int deleteOlderThan(Instant threshold);
+}
@@ -0,0 +1,129 @@
+package autoservice.adapter.repository.impl;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Пакетная вставка многострочными {@code INSERT ... VALUES (...), (...) RETURNING id}.
+ * Строки режутся на порции, все порции идут по одному соединению в одной транзакции:
+ * либо вставлены все записи, либо ни одной
+ */
+final class BatchInsert<T> {
+
+    /**
+     * Максимум строк в одном INSERT
+     */
+    static final int CHUNK_SIZE = 500;
+
+    /**
+     * Ограничение протокола PostgreSQL на число параметров в одном запросе
+     */
+    private static final int MAX_PARAMS = Short.MAX_VALUE;
+
+    private final String table;
+    private final List<String> columns;
+    private final Function<? super T, Object[]> values;
+    private final ObjIntConsumer<? super T> idSetter;
+
+    BatchInsert(String table, List<String> columns,
+                Function<? super T, Object[]> values, ObjIntConsumer<? super T> idSetter) {
+        this.table = table;
+        this.columns = List.copyOf(columns);
+        this.values = values;
+        this.idSetter = idSetter;
+    }
+
+    /**
+     * Вставляет записи и проставляет им сгенерированные id
+     *
+     * @return вставленные записи в исходном порядке
+     */
+    List<T> insert(JdbcTemplate jdbcTemplate, Collection<? extends T> rows) {
+        return insertIf(jdbcTemplate, rows, connection -> true)
+                .orElseThrow(() -> new IllegalStateException("Пакетная вставка отменена"));
+    }
+
+    /**
+     * Вставка с предварительным шагом в той же транзакции, например сменой состояния связанных строк.
+     * Если шаг вернул false, транзакция откатывается и ничего не вставляется
+     *
+     * @param before шаг перед вставкой на том же соединении
+     * @return вставленные записи в исходном порядке или пусто, если шаг отменил вставку
+     */
+    Optional<List<T>> insertIf(JdbcTemplate jdbcTemplate, Collection<? extends T> rows, Step before) {
+        if (rows.isEmpty()) return Optional.of(Collections.emptyList());
+        var all = List.<T>copyOf(rows);
+        return jdbcTemplate.execute((ConnectionCallback<Optional<List<T>>>) connection -> {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (!before.run(connection)) {
+                    if (autoCommit) connection.rollback();
+                    return Optional.empty();
+                }
+                for (var from = 0; from < all.size(); from += chunkSize()) {
+                    insertChunk(connection, all.subList(from, Math.min(from + chunkSize(), all.size())));
+                }
+                if (autoCommit) connection.commit();
+                return Optional.of(all);
+            } catch (SQLException | RuntimeException e) {
+                if (autoCommit) connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    int chunkSize() {
+        return Math.min(CHUNK_SIZE, MAX_PARAMS / columns.size());
+    }
+
+    String sql(int rows) {
+        var row = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES "
+                + String.join(", ", Collections.nCopies(rows, row)) + " RETURNING id";
+    }
+
+    private void insertChunk(Connection connection, List<T> chunk) throws SQLException {
+        var params = new ArrayList<>(chunk.size() * columns.size());
+        for (var row : chunk) {
+            Collections.addAll(params, values.apply(row));
+        }
+        try (var ps = connection.prepareStatement(sql(chunk.size()))) {
+            new ArgumentPreparedStatementSetter(params.toArray()).setValues(ps);
+            try (var rs = ps.executeQuery()) {
+                var i = 0;
+                while (rs.next()) {
+                    idSetter.accept(chunk.get(i++), rs.getInt(1));
+                }
+                if (i != chunk.size()) {
+                    throw new SQLException("Вставлено " + i + " строк из " + chunk.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Шаг внутри транзакции пакетной вставки
+     */
+    @FunctionalInterface
+    interface Step {
+
+        /**
+         * @return true - продолжить вставку, false - откатить транзакцию
+         */
+        boolean run(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,151 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
+import autoservice.config.routing.RoutingContext;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Кэш автомобилей по id поверх {@link CarRepositoryImpl}. Поиск по id идёт в базу только при промахе,
+ * отсутствующий id тоже кэшируется на короткий срок. Промах читается с primary, чтобы не закэшировать
+ * строку с отстающей реплики. Запись проходит в базу и кладёт в кэш строку, которую вернула база.
+ * Выборки по условию, потоки и страницы идут в базу напрямую.
+ * В кэше лежат копии: изменение возвращённого объекта не меняет закэшированный
+ */
+@Primary
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CachingCarRepository implements CarRepository {
+
+    CarRepository delegate;
+    Cache<Integer, Optional<Car>> cache;
+
+    public CachingCarRepository(@Qualifier("carRepositoryImpl") CarRepository delegate,
+                                Cache<Integer, Optional<Car>> carCache) {
+        this.delegate = delegate;
+        this.cache = carCache;
+    }
+
+    @Override
+    public Optional<Car> findById(int id) {
+        return cache.get(id, key -> RoutingContext.onPrimary(() -> delegate.findById(key)))
+                .map(CachingCarRepository::copy);
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        var cached = cache.getIfPresent(id);
+        return cached != null ? cached.isPresent() : delegate.existsById(id);
+    }
+
+    @Override
+    public Optional<Car> create(Car car) {
+        var created = delegate.create(car);
+        created.ifPresent(this::put);
+        return created;
+    }
+
+    @Override
+    public List<Car> createAll(Collection<Car> cars) {
+        var created = delegate.createAll(cars);
+        created.forEach(this::put);
+        return created;
+    }
+
+    @Override
+    public int delete(Car car) {
+        return deleteById(car.getId());
+    }
+
+    @Override
+    public int deleteById(int id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public int update(Car car) {
+        var updated = delegate.update(car);
+        if (updated > 0) {
+            put(car);
+        } else {
+            // Версия в кэше отстала от базы либо автомобиль удалён
+            cache.invalidate(car.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public Optional<Car> updateReturning(Car car) {
+        var updated = delegate.updateReturning(car);
+        updated.ifPresentOrElse(this::put, () -> cache.invalidate(car.getId()));
+        return updated;
+    }
+
+    @Override
+    public Optional<Car> upsert(Car car) {
+        var saved = delegate.upsert(car);
+        saved.ifPresent(this::put);
+        return saved;
+    }
+
+    @Override
+    public List<Car> updateState(Collection<Integer> ids, CarState state) {
+        List<Car> updated;
+        try {
+            updated = delegate.updateState(ids, state);
+        } catch (RuntimeException e) {
+            cache.invalidateAll(ids);
+            throw e;
+        }
+        cache.invalidateAll(ids);
+        updated.forEach(this::put);
+        return updated;
+    }
+
+    @Override
+    public void refresh(Car car) {
+        put(car);
+    }
+
+    @Override
+    public Stream<Car> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Car> findByFilter(Specification<? super Car> specification) {
+        return delegate.findByFilter(specification);
+    }
+
+    @Override
+    public Page<Car> findPage(Specification<? super Car> specification, PageRequest<? super Car> request) {
+        return delegate.findPage(specification, request);
+    }
+
+    private void put(Car car) {
+        cache.put(car.getId(), Optional.of(copy(car)));
+    }
+
+    private static Car copy(Car car) {
+        return new Car(car.getId(), car.getState(), car.getMake(), car.getModel(), car.getYear(), car.getPrice(),
+                car.getVersion());
+    }
+}
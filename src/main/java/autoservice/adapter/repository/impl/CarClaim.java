@@ -0,0 +1,44 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Захват набора автомобилей под пакет заказов одним UPDATE ... WHERE id = ANY(?) AND state = ANY(?).
+ * Выполняется на соединении пакетной вставки, поэтому смена состояния и заказы фиксируются вместе
+ */
+final class CarClaim {
+
+    private static final String SQL = "UPDATE car_service.car SET state = ?, version = version + 1 " +
+            "WHERE id = ANY(?) AND state = ANY(?) RETURNING " + EntityRowMappers.CAR_COLUMNS;
+
+    private CarClaim() {
+    }
+
+    /**
+     * @param carIds    id автомобилей
+     * @param available состояния, из которых автомобиль можно занять
+     * @param claimed   состояние после захвата
+     * @return занятые автомобили в новом состоянии; если их меньше, чем разных id, вызывающий откатывает транзакцию
+     */
+    static List<Car> claimAll(Connection connection, Collection<Integer> carIds,
+                              Collection<CarState> available, CarState claimed) throws SQLException {
+        var cars = new ArrayList<Car>();
+        try (var ps = connection.prepareStatement(SQL)) {
+            ps.setString(1, claimed.name());
+            ps.setArray(2, connection.createArrayOf("integer", Set.copyOf(carIds).toArray()));
+            ps.setArray(3, connection.createArrayOf("text", available.stream().map(Enum::name).toArray()));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) cars.add(EntityRowMappers.car(rs, ""));
+            }
+        }
+        return cars;
+    }
+}
@@ -0,0 +1,135 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.CarImportException;
+import autoservice.adapter.repository.CarImportRepository;
+import autoservice.domen.dto.CarImportResponse;
+import autoservice.domen.model.enums.CarState;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Импорт автомобилей через COPY: CSV потоком копируется во временную таблицу,
+ * строки проверяются одним UPDATE, корректные переносятся в car_service.car одним INSERT ... SELECT.
+ * Всё выполняется в одной транзакции, временная таблица удаляется при коммите
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CarImportRepositoryImpl implements CarImportRepository {
+
+    /**
+     * SQLSTATE ошибок разбора входных данных COPY (класс 22 - data exception)
+     */
+    private static final String DATA_EXCEPTION = "22";
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE car_import (
+                line_no bigint GENERATED ALWAYS AS IDENTITY,
+                make text, model text, year text, price text, state text,
+                reject text
+            ) ON COMMIT DROP""";
+
+    private static final String COPY_STAGING =
+            "COPY car_import (make, model, year, price, state) FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    private static final String VALIDATE = """
+            UPDATE car_import SET reject = CASE
+                WHEN coalesce(btrim(make), '') = '' OR length(btrim(make)) > 255 THEN 'Некорректная марка'
+                WHEN coalesce(btrim(model), '') = '' OR length(btrim(model)) > 255 THEN 'Некорректная модель'
+                WHEN coalesce(btrim(year), '') !~ '^[1-9][0-9]{0,3}$' THEN 'Некорректный год: ' || coalesce(year, '')
+                WHEN coalesce(btrim(price), '') !~ '^[0-9]{1,18}$' THEN 'Некорректная цена: ' || coalesce(price, '')
+                WHEN coalesce(btrim(state), '') <> ALL (?) THEN 'Неизвестное состояние: ' || coalesce(state, '')
+            END""";
+
+    private static final String MERGE = """
+            INSERT INTO car_service.car (make, model, year, price, state)
+            SELECT btrim(make), btrim(model), btrim(year)::int, btrim(price)::bigint, btrim(state)
+            FROM car_import
+            WHERE reject IS NULL
+            ORDER BY line_no""";
+
+    private static final String REJECTS =
+            "SELECT line_no, reject FROM car_import WHERE reject IS NOT NULL ORDER BY line_no LIMIT ?";
+
+    private static final String REJECT_COUNT = "SELECT count(*) FROM car_import WHERE reject IS NOT NULL";
+
+    JdbcTemplate jdbcTemplate;
+    QueryResultCache queryCache;
+
+    @Override
+    public CarImportResponse importCsv(InputStream csv, int rejectLimit) {
+        var response = jdbcTemplate.execute((ConnectionCallback<CarImportResponse>) connection -> {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                var result = importCsv(connection, csv, rejectLimit);
+                if (autoCommit) connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                if (autoCommit) connection.rollback();
+                if (e instanceof SQLException sqlException && isDataException(sqlException)) {
+                    throw new CarImportException("Файл не является корректным CSV: " + e.getMessage(), e);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+        queryCache.bump("car");
+        return response;
+    }
+
+    private CarImportResponse importCsv(Connection connection, InputStream csv, int rejectLimit) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+        }
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING, csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try (var ps = connection.prepareStatement(VALIDATE)) {
+            var states = Arrays.stream(CarState.values()).map(Enum::name).toArray();
+            ps.setArray(1, connection.createArrayOf("text", states));
+            ps.executeUpdate();
+        }
+        long imported;
+        try (var ps = connection.prepareStatement(MERGE)) {
+            imported = ps.executeLargeUpdate();
+        }
+        long rejected;
+        try (var ps = connection.prepareStatement(REJECT_COUNT); var rs = ps.executeQuery()) {
+            rs.next();
+            rejected = rs.getLong(1);
+        }
+        var rejects = new ArrayList<CarImportResponse.Reject>();
+        try (var ps = connection.prepareStatement(REJECTS)) {
+            ps.setInt(1, rejectLimit);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // line_no считает строки данных, в файле перед ними ещё заголовок
+                    rejects.add(new CarImportResponse.Reject(rs.getLong(1) + 1, rs.getString(2)));
+                }
+            }
+        }
+        return new CarImportResponse(imported, rejected, rejects);
+    }
+
+    private static boolean isDataException(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith(DATA_EXCEPTION);
+    }
+}
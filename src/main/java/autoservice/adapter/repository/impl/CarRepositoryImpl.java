@@ -1,6 +1,10 @@
 package autoservice.adapter.repository.impl;
 
 import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.page.KeysetQuery;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.domen.model.Car;
 import autoservice.domen.model.enums.CarState;
 import lombok.AccessLevel;
@@ -11,9 +15,9 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Repository
@@ -21,17 +25,21 @@ import java.util.stream.Stream;
 @AllArgsConstructor
 public class CarRepositoryImpl implements CarRepository {
 
+    private static final String TABLE = "car";
+
+    private static final BatchInsert<Car> BATCH_INSERT = new BatchInsert<>("car_service.car",
+            List.of("make", "model", "year", "price", "state"),
+            car -> new Object[]{car.getMake(), car.getModel(), car.getYear(), car.getPrice(), car.getState().name()},
+            (car, id) -> {
+                car.setId(id);
+                car.setVersion(0);
+            });
+
     JdbcTemplate jdbcTemplate;
+    JdbcStreamer jdbcStreamer;
+    QueryResultCache queryCache;
 
-    private final RowMapper<Car> carRowMapper = (rs, rowNum) -> {
-        var id = rs.getInt("id");
-        var make = rs.getString("make");
-        var model = rs.getString("model");
-        var year = rs.getInt("year");
-        var price = rs.getLong("price");
-        var state = CarState.valueOf(rs.getString("state"));
-        return new Car(id, state, make, model, year, price);
-    };
+    private final RowMapper<Car> carRowMapper = (rs, rowNum) -> EntityRowMappers.car(rs, "");
 
     @Override
     public Optional<Car> create(Car car) {
@@ -39,7 +47,7 @@ public class CarRepositoryImpl implements CarRepository {
 
         var keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
-            var ps = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS);
+            var ps = connection.prepareStatement(insertSql, new String[]{"id"});
             ps.setString(1, car.getMake());
             ps.setString(2, car.getModel());
             ps.setInt(3, car.getYear());
@@ -47,25 +55,86 @@ public class CarRepositoryImpl implements CarRepository {
             ps.setString(5, car.getState().name());
             return ps;
         }, keyHolder);
+        queryCache.bump(TABLE);
 
         var generatedId = keyHolder.getKey();
         if (generatedId != null) {
             car.setId(generatedId.intValue());
+            car.setVersion(0);
             return Optional.of(car);
         }
         return Optional.empty();
     }
 
+    @Override
+    public List<Car> createAll(Collection<Car> cars) {
+        var created = BATCH_INSERT.insert(jdbcTemplate, cars);
+        queryCache.bump(TABLE);
+        return created;
+    }
+
     @Override
     public int delete(Car car) {
+        return deleteById(car.getId());
+    }
+
+    @Override
+    public int deleteById(int id) {
         var sql = "DELETE FROM car_service.car WHERE id = ?";
-        return jdbcTemplate.update(sql, car.getId());
+        var deleted = jdbcTemplate.update(sql, id);
+        queryCache.bump(TABLE);
+        return deleted;
     }
 
     @Override
     public int update(Car car) {
-        var sql = "UPDATE car_service.car SET make = ?, model = ?, year = ?, price = ?, state = ? WHERE id = ?";
-        return jdbcTemplate.update(sql, car.getMake(), car.getModel(), car.getYear(), car.getPrice(), car.getState().name(), car.getId());
+        var sql = "UPDATE car_service.car SET make = ?, model = ?, year = ?, price = ?, state = ?, version = version + 1 " +
+                "WHERE id = ? AND version = ?";
+        var updated = jdbcTemplate.update(sql, car.getMake(), car.getModel(), car.getYear(), car.getPrice(),
+                car.getState().name(), car.getId(), car.getVersion());
+        queryCache.bump(TABLE);
+        if (updated > 0) car.setVersion(car.getVersion() + 1);
+        return updated;
+    }
+
+    @Override
+    public Optional<Car> updateReturning(Car car) {
+        var sql = "UPDATE car_service.car SET make = ?, model = ?, year = ?, price = ?, state = ?, version = version + 1 " +
+                "WHERE id = ? AND version = ? RETURNING id, make, model, year, price, state, version";
+        var updated = jdbcTemplate.query(sql, carRowMapper,
+                car.getMake(), car.getModel(), car.getYear(), car.getPrice(), car.getState().name(), car.getId(),
+                car.getVersion());
+        queryCache.bump(TABLE);
+        return updated.stream().findFirst();
+    }
+
+    @Override
+    public Optional<Car> upsert(Car car) {
+        if (car.getId() == 0) return create(car);
+        var sql = SerialSequence.upsertReturning("car_service.car",
+                "INSERT INTO car_service.car (id, make, model, year, price, state) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET make = EXCLUDED.make, model = EXCLUDED.model, " +
+                "year = EXCLUDED.year, price = EXCLUDED.price, state = EXCLUDED.state, version = car.version + 1",
+                EntityRowMappers.CAR_COLUMNS);
+        var saved = jdbcTemplate.query(sql, carRowMapper,
+                car.getId(), car.getMake(), car.getModel(), car.getYear(), car.getPrice(), car.getState().name());
+        queryCache.bump(TABLE);
+        return saved.stream().findFirst();
+    }
+
+    @Override
+    public List<Car> updateState(Collection<Integer> ids, CarState state) {
+        if (ids.isEmpty()) return List.of();
+        var sql = "UPDATE car_service.car SET state = ?, version = version + 1 WHERE id = ANY(?) " +
+                "RETURNING " + EntityRowMappers.CAR_COLUMNS;
+        var updated = jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(sql);
+            ps.setString(1, state.name());
+            ps.setArray(2, connection.createArrayOf("integer", ids.toArray()));
+            return ps;
+        }, carRowMapper);
+        queryCache.bump(TABLE);
+        return updated;
     }
 
     @Override
@@ -77,19 +146,30 @@ public class CarRepositoryImpl implements CarRepository {
 
     @Override
     public Optional<Car> findById(int id) {
-        var sql = "SELECT id, make, model, year, price, state FROM car_service.car WHERE id = ?";
+        var sql = "SELECT id, make, model, year, price, state, version FROM car_service.car WHERE id = ?";
         return jdbcTemplate.query(sql, carRowMapper, id).stream().findFirst();
     }
 
     @Override
     public Stream<Car> findAll() {
-        var sql = "SELECT * FROM car_service.car";
-        return jdbcTemplate.query(sql, carRowMapper).stream();
+        var sql = "SELECT id, make, model, year, price, state, version FROM car_service.car";
+        return jdbcStreamer.stream(sql, carRowMapper);
+    }
+
+    @Override
+    public Stream<Car> findByFilter(Specification<? super Car> specification) {
+        var where = specification.toSql();
+        var sql = "SELECT id, make, model, year, price, state, version FROM car_service.car WHERE " + where.sql();
+        return jdbcStreamer.stream(sql, carRowMapper, where.args());
     }
 
     @Override
-    public Stream<Car> findByFilter(Predicate<Car> predicate) {
-        return findAll().filter(predicate);
+    public Page<Car> findPage(Specification<? super Car> specification, PageRequest<? super Car> request) {
+        var query = KeysetQuery.of(specification, request);
+        var sql = "SELECT id, make, model, year, price, state, version FROM car_service.car WHERE " + query.suffix();
+        var rows = queryCache.query("car.findPage", List.of(TABLE), sql, query.args(),
+                () -> jdbcTemplate.query(sql, carRowMapper, query.args()), Car::copy);
+        return query.toPage(rows, Car::getId);
     }
 }
 
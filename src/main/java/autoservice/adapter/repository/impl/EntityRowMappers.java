@@ -0,0 +1,77 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.domen.model.Car;
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.CarState;
+import autoservice.domen.model.enums.Role;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Чтение сущностей из строки выборки. Префикс позволяет читать колонки,
+ * пришедшие из JOIN под псевдонимами (например, u_id, c_make)
+ */
+final class EntityRowMappers {
+
+    static final String USER_COLUMNS = "id, role, email, username, password, name, surname, phone, version";
+    /**
+     * Клиент в составе заказа: всё, кроме хэша пароля, который заказу не нужен
+     */
+    static final String CUSTOMER_COLUMNS = "id, role, email, username, name, surname, phone, version";
+    static final String CAR_COLUMNS = "id, make, model, year, price, state, version";
+
+    private EntityRowMappers() {
+    }
+
+    static User user(ResultSet rs, String prefix) throws SQLException {
+        return user(rs, prefix, rs.getString(prefix + "password"));
+    }
+
+    /**
+     * Клиент из колонок {@link #CUSTOMER_COLUMNS}, пароль не заполняется
+     */
+    static User customer(ResultSet rs, String prefix) throws SQLException {
+        return user(rs, prefix, null);
+    }
+
+    private static User user(ResultSet rs, String prefix, String password) throws SQLException {
+        var id = rs.getInt(prefix + "id");
+        var username = rs.getString(prefix + "username");
+        var name = rs.getString(prefix + "name");
+        var surname = rs.getString(prefix + "surname");
+        var phone = rs.getString(prefix + "phone");
+        var role = Role.valueOf(rs.getString(prefix + "role"));
+        var email = rs.getString(prefix + "email");
+        var version = rs.getInt(prefix + "version");
+        return new User(id, role, email, username, password, name, surname, phone, version);
+    }
+
+    static Car car(ResultSet rs, String prefix) throws SQLException {
+        var id = rs.getInt(prefix + "id");
+        var make = rs.getString(prefix + "make");
+        var model = rs.getString(prefix + "model");
+        var year = rs.getInt(prefix + "year");
+        var price = rs.getLong(prefix + "price");
+        var state = CarState.valueOf(rs.getString(prefix + "state"));
+        var version = rs.getInt(prefix + "version");
+        return new Car(id, state, make, model, year, price, version);
+    }
+
+    /**
+     * Список колонок с псевдонимами для JOIN
+     *
+     * @param alias   псевдоним таблицы
+     * @param columns колонки через запятую
+     * @return например, "u.id AS u_id, u.role AS u_role"
+     */
+    static String aliased(String alias, String columns) {
+        var result = new StringBuilder();
+        for (var column : columns.split(",\\s*")) {
+            if (!result.isEmpty()) result.append(", ");
+            result.append(alias).append('.').append(column)
+                    .append(" AS ").append(alias).append('_').append(column);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.ExportRepository;
+import autoservice.adapter.repository.ExportTable;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ExportRepositoryImpl implements ExportRepository {
+
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long copyCsv(ExportTable table, OutputStream out) {
+        var sql = "COPY (" + table.getQuery() + ") TO STDOUT WITH (FORMAT csv, HEADER true)";
+        var rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+}
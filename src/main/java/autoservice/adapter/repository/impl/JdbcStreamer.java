@@ -0,0 +1,133 @@
+package autoservice.adapter.repository.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Потоковое чтение выборки. Запрос выполняется в read-only транзакции с fetch size,
+ * поэтому PostgreSQL отдаёт строки порциями через серверный курсор, а не всю таблицу сразу.
+ * Соединение освобождается при закрытии стрима или после чтения последней строки
+ */
+@Component
+public class JdbcStreamer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public JdbcStreamer(JdbcTemplate jdbcTemplate,
+                        @Value("${spring.datasource.stream-fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Ленивый стрим строк выборки. Стрим нужно закрывать (try-with-resources)
+     *
+     * @param sql       запрос
+     * @param rowMapper маппер строк
+     * @param args      параметры запроса
+     * @return стрим сущностей
+     */
+    public <T> Stream<T> stream(String sql, RowMapper<T> rowMapper, Object... args) {
+        var dataSource = jdbcTemplate.getDataSource();
+        var connection = DataSourceUtils.getConnection(dataSource);
+        var transactional = DataSourceUtils.isConnectionTransactional(connection, dataSource);
+        var cursor = new ResultSetSpliterator<>(connection, transactional, rowMapper);
+        try {
+            cursor.open(sql, args);
+        } catch (SQLException e) {
+            cursor.close();
+            throw translate(sql, e);
+        }
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    private RuntimeException translate(String sql, SQLException e) {
+        var translated = jdbcTemplate.getExceptionTranslator().translate("JdbcStreamer", sql, e);
+        return translated != null ? translated : new IllegalStateException(e);
+    }
+
+    private final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final Connection connection;
+        private final boolean transactional;
+        private final RowMapper<T> rowMapper;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private PreparedStatement statement;
+        private ResultSet resultSet;
+        private String sql;
+        private int rowNum;
+
+        private ResultSetSpliterator(Connection connection, boolean transactional, RowMapper<T> rowMapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.transactional = transactional;
+            this.rowMapper = rowMapper;
+        }
+
+        private void open(String sql, Object[] args) throws SQLException {
+            this.sql = sql;
+            if (!transactional) {
+                autoCommit = connection.getAutoCommit();
+                readOnly = connection.isReadOnly();
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+            }
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(args).setValues(statement);
+            resultSet = statement.executeQuery();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed.get()) return false;
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(rowMapper.mapRow(resultSet, rowNum++));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw translate(sql, e);
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            JdbcUtils.closeResultSet(resultSet);
+            JdbcUtils.closeStatement(statement);
+            try {
+                if (!transactional) {
+                    connection.commit();
+                    connection.setReadOnly(readOnly);
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException ignored) {
+                // соединение вернётся в пул, пул сам сбросит его состояние
+            } finally {
+                DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+            }
+        }
+    }
+}
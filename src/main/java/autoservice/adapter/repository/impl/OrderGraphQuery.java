@@ -0,0 +1,105 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.FetchPlan;
+import autoservice.adapter.repository.page.KeysetQuery;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.EntityRef;
+import autoservice.domen.model.Order;
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.OrderStatus;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Построение запроса заказа вместе со связанными сущностями по плану загрузки.
+ * Клиент и автомобиль подтягиваются одним JOIN-запросом вместо отдельного findById на каждую строку
+ */
+final class OrderGraphQuery {
+
+    private static final String ORDER_COLUMNS = "o.id, o.customer_id, o.car_id, o.date, o.status, o.version";
+
+    private OrderGraphQuery() {
+    }
+
+    @FunctionalInterface
+    interface OrderFactory<T extends Order> {
+        T create(int id, LocalDate date, OrderStatus status, EntityRef<User> customer, EntityRef<Car> car);
+    }
+
+    /**
+     * SQL выборки заказов
+     *
+     * @param table таблица заказов
+     * @param plan  план загрузки
+     * @param where условие по колонкам таблицы заказов
+     * @return текст запроса
+     */
+    static String select(String table, FetchPlan plan, String where) {
+        return build(table, plan, where).toString();
+    }
+
+    /**
+     * SQL выборки страницы заказов. Сортировка и лимит применяются к таблице заказов
+     * до JOIN, порядок повторяется во внешнем запросе
+     *
+     * @param table таблица заказов
+     * @param plan  план загрузки
+     * @param query условие, сортировка и лимит страницы
+     * @return текст запроса
+     */
+    static String select(String table, FetchPlan plan, KeysetQuery query) {
+        return build(table, plan, query.suffix()).append(" ORDER BY ").append(query.orderBy("o.")).toString();
+    }
+
+    private static StringBuilder build(String table, FetchPlan plan, String where) {
+        var sql = new StringBuilder("SELECT ").append(ORDER_COLUMNS);
+        if (plan.includesCustomer()) {
+            sql.append(", ").append(EntityRowMappers.aliased("u", EntityRowMappers.CUSTOMER_COLUMNS));
+        }
+        if (plan.includesCar()) {
+            sql.append(", ").append(EntityRowMappers.aliased("c", EntityRowMappers.CAR_COLUMNS));
+        }
+        sql.append(" FROM (SELECT * FROM ").append(table).append(" WHERE ").append(where).append(") o");
+        if (plan.includesCustomer()) {
+            sql.append(" JOIN car_service.user u ON u.id = o.customer_id");
+        }
+        if (plan.includesCar()) {
+            sql.append(" JOIN car_service.car c ON c.id = o.car_id");
+        }
+        return sql;
+    }
+
+    /**
+     * Маппер, собирающий заказ из одной строки. Связи, не вошедшие в план,
+     * становятся ленивыми ссылками и загружаются только при обращении
+     *
+     * @param plan       план загрузки
+     * @param factory    конструктор заказа
+     * @param userLoader загрузка клиента по id
+     * @param carLoader  загрузка автомобиля по id
+     * @return маппер строк
+     */
+    static <T extends Order> RowMapper<T> mapper(FetchPlan plan, OrderFactory<T> factory,
+                                                IntFunction<Optional<User>> userLoader,
+                                                IntFunction<Optional<Car>> carLoader) {
+        return (rs, rowNum) -> {
+            var id = rs.getInt("id");
+            var date = rs.getDate("date");
+            var status = OrderStatus.valueOf(rs.getString("status"));
+            var customerId = rs.getInt("customer_id");
+            var carId = rs.getInt("car_id");
+            var customer = plan.includesCustomer()
+                    ? EntityRef.of(customerId, EntityRowMappers.customer(rs, "u_"))
+                    : EntityRef.lazy(customerId, userLoader);
+            var car = plan.includesCar()
+                    ? EntityRef.of(carId, EntityRowMappers.car(rs, "c_"))
+                    : EntityRef.lazy(carId, carLoader);
+            var order = factory.create(id, date.toLocalDate(), status, customer, car);
+            order.setVersion(rs.getInt("version"));
+            return order;
+        };
+    }
+}
@@ -1,14 +1,18 @@
 package autoservice.adapter.repository.impl;
 
 import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.FetchPlan;
 import autoservice.adapter.repository.OrderRepository;
 import autoservice.adapter.repository.UserRepository;
+import autoservice.adapter.repository.page.KeysetQuery;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.OrderColumns;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.domen.model.Car;
 import autoservice.domen.model.SalesOrder;
-import autoservice.domen.model.User;
-import autoservice.domen.model.enums.OrderStatus;
+import autoservice.domen.model.enums.CarState;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -16,40 +20,55 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Repository
-@AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class OrderRepositoryImpl implements OrderRepository {
 
+    private static final String TABLE = "car_service.sales_order";
+
+    /**
+     * Таблицы для версий кэша запросов: страница заказов читает и клиентов, и автомобили
+     */
+    private static final String CACHE_TABLE = "sales_order";
+    private static final List<String> CACHE_READ_TABLES = List.of(CACHE_TABLE, "user", "car");
+
+    private static final BatchInsert<SalesOrder> BATCH_INSERT = new BatchInsert<>(TABLE,
+            List.of("customer_id", "car_id", "date", "status"),
+            order -> new Object[]{order.getCustomer().getId(), order.getCar().getId(),
+                    Date.valueOf(order.getDate()), order.getStatus().name()},
+            (order, id) -> {
+                order.setId(id);
+                order.setVersion(0);
+            });
+
     UserRepository userRepository;
     CarRepository carRepository;
     JdbcTemplate jdbcTemplate;
+    JdbcStreamer jdbcStreamer;
+    QueryResultCache queryCache;
 
-    private final RowMapper<SalesOrder> salesOrderRowMapper = (ResultSet rs, int rowNum) -> {
-        var id = rs.getInt("id");
-        var customerId = rs.getInt("customer_id");
-        var carId = rs.getInt("car_id");
-        var date = rs.getDate("date");
-        var status = OrderStatus.valueOf(rs.getString("status"));
-        var customer = getUserById(customerId).orElseThrow(() -> new SQLException("User not found"));
-        var car = getCarById(carId).orElseThrow(() -> new SQLException("Car not found"));
-
-        return new SalesOrder(id, date.toLocalDate(), status, customer, car);
-    };
+    Map<FetchPlan, RowMapper<SalesOrder>> salesOrderRowMappers = new EnumMap<>(FetchPlan.class);
 
-    private Optional<User> getUserById(int id) {
-        return userRepository.findById(id);
-    }
-
-    private Optional<Car> getCarById(int id) {
-        return carRepository.findById(id);
+    public OrderRepositoryImpl(UserRepository userRepository, CarRepository carRepository,
+                 JdbcTemplate jdbcTemplate, JdbcStreamer jdbcStreamer, QueryResultCache queryCache) {
+        this.userRepository = userRepository;
+        this.carRepository = carRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcStreamer = jdbcStreamer;
+        this.queryCache = queryCache;
+        for (var plan : FetchPlan.values()) {
+            salesOrderRowMappers.put(plan, OrderGraphQuery.mapper(plan, SalesOrder::new,
+                    userRepository::findById, carRepository::findById));
+        }
     }
 
     @Override
@@ -59,39 +78,145 @@ public class OrderRepositoryImpl implements OrderRepository {
         var keyHolder = new GeneratedKeyHolder();
 
         var rowsAffected = jdbcTemplate.update(connection -> {
-            var ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            var ps = connection.prepareStatement(sql, new String[]{"id"});
             ps.setInt(1, order.getCustomer().getId());
             ps.setInt(2, order.getCar().getId());
             ps.setDate(3, Date.valueOf(order.getDate()));
             ps.setString(4, order.getStatus().name());
             return ps;
         }, keyHolder);
+        queryCache.bump(CACHE_TABLE);
 
         if (rowsAffected > 0) {
             var generatedId = keyHolder.getKey();
             if (generatedId != null) {
                 order.setId(generatedId.intValue());
+                order.setVersion(0);
                 return Optional.of(order);
             }
         }
         return Optional.empty();
     }
 
+    @Override
+    public Optional<SalesOrder> createClaimingCar(SalesOrder order, Collection<CarState> available, CarState claimed) {
+        var sql = """
+                WITH claimed AS (
+                    UPDATE car_service.car SET state = ?, version = version + 1
+                    WHERE id = ? AND state = ANY(?)
+                    RETURNING %s
+                ), inserted AS (
+                    INSERT INTO car_service.sales_order (customer_id, car_id, date, status)
+                    SELECT ?, claimed.id, ?, ? FROM claimed
+                    RETURNING id
+                )
+                SELECT inserted.id AS order_id, claimed.* FROM inserted, claimed""".formatted(EntityRowMappers.CAR_COLUMNS);
+        var rows = jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(sql);
+            ps.setString(1, claimed.name());
+            ps.setInt(2, order.getCar().getId());
+            ps.setArray(3, connection.createArrayOf("text", available.stream().map(Enum::name).toArray()));
+            ps.setInt(4, order.getCustomer().getId());
+            ps.setDate(5, Date.valueOf(order.getDate()));
+            ps.setString(6, order.getStatus().name());
+            return ps;
+        }, (rs, rowNum) -> Map.entry(rs.getInt("order_id"), EntityRowMappers.car(rs, "")));
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        carRepository.refresh(rows.get(0).getValue());
+        queryCache.bump(CACHE_TABLE);
+        queryCache.bump("car");
+        order.setId(rows.get(0).getKey());
+        order.setVersion(0);
+        return Optional.of(order);
+    }
+
+    @Override
+    public List<SalesOrder> createAll(Collection<SalesOrder> orders) {
+        var created = BATCH_INSERT.insert(jdbcTemplate, orders);
+        queryCache.bump(CACHE_TABLE);
+        return created;
+    }
+
+    @Override
+    public Optional<List<SalesOrder>> createAllClaimingCars(Collection<SalesOrder> orders, Collection<CarState> available,
+                                                     CarState claimed) {
+        var carIds = orders.stream().map(order -> order.getCar().getId()).collect(Collectors.toSet());
+        var claimedCars = new ArrayList<Car>();
+        var created = BATCH_INSERT.insertIf(jdbcTemplate, orders, connection -> {
+            claimedCars.addAll(CarClaim.claimAll(connection, carIds, available, claimed));
+            return claimedCars.size() == carIds.size();
+        });
+        if (created.isPresent()) {
+            claimedCars.forEach(carRepository::refresh);
+            queryCache.bump(CACHE_TABLE);
+            queryCache.bump("car");
+        }
+        return created;
+    }
+
     @Override
     public int delete(SalesOrder order) {
+        return deleteById(order.getId());
+    }
+
+    @Override
+    public int deleteById(int id) {
         var sql = "DELETE FROM car_service.sales_order WHERE id = ?";
-        return jdbcTemplate.update(sql, order.getId());
+        var deleted = jdbcTemplate.update(sql, id);
+        queryCache.bump(CACHE_TABLE);
+        return deleted;
     }
 
     @Override
     public int update(SalesOrder order) {
-        var sql = "UPDATE car_service.sales_order SET customer_id = ?, car_id = ?, date = ?, status = ? WHERE id = ?";
-        return jdbcTemplate.update(sql,
+        var sql = "UPDATE car_service.sales_order SET customer_id = ?, car_id = ?, date = ?, status = ?, " +
+                "version = version + 1 WHERE id = ? AND version = ?";
+        var updated = jdbcTemplate.update(sql,
+                order.getCustomer().getId(),
+                order.getCar().getId(),
+                Date.valueOf(order.getDate()),
+                order.getStatus().name(),
+                order.getId(),
+                order.getVersion());
+        queryCache.bump(CACHE_TABLE);
+        if (updated > 0) order.setVersion(order.getVersion() + 1);
+        return updated;
+    }
+
+    @Override
+    public Optional<SalesOrder> updateReturning(SalesOrder order) {
+        var sql = "UPDATE car_service.sales_order SET customer_id = ?, car_id = ?, date = ?, status = ?, " +
+                "version = version + 1 WHERE id = ? AND version = ? " +
+                "RETURNING id, customer_id, car_id, date, status, version";
+        var updated = jdbcTemplate.query(sql, salesOrderRowMappers.get(FetchPlan.ORDER),
                 order.getCustomer().getId(),
                 order.getCar().getId(),
                 Date.valueOf(order.getDate()),
                 order.getStatus().name(),
-                order.getId());
+                order.getId(),
+                order.getVersion());
+        queryCache.bump(CACHE_TABLE);
+        return updated.stream().findFirst();
+    }
+
+    @Override
+    public Optional<SalesOrder> upsert(SalesOrder order) {
+        if (order.getId() == 0) return create(order);
+        var sql = SerialSequence.upsertReturning("car_service.sales_order",
+                "INSERT INTO car_service.sales_order (id, customer_id, car_id, date, status) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET customer_id = EXCLUDED.customer_id, car_id = EXCLUDED.car_id, " +
+                "date = EXCLUDED.date, status = EXCLUDED.status, version = sales_order.version + 1",
+                "id, customer_id, car_id, date, status, version");
+        var saved = jdbcTemplate.query(sql, salesOrderRowMappers.get(FetchPlan.ORDER),
+                order.getId(),
+                order.getCustomer().getId(),
+                order.getCar().getId(),
+                Date.valueOf(order.getDate()),
+                order.getStatus().name());
+        queryCache.bump(CACHE_TABLE);
+        return saved.stream().findFirst();
     }
 
     @Override
@@ -103,22 +228,51 @@ public class OrderRepositoryImpl implements OrderRepository {
 
     @Override
     public Optional<SalesOrder> findById(int id) {
-        var sql = "SELECT id, customer_id, car_id, date, status FROM car_service.sales_order WHERE id = ?";
-        return jdbcTemplate.query(sql, salesOrderRowMapper, id).stream().findFirst();
+        return findById(id, FetchPlan.ORDER);
     }
 
     @Override
     public Stream<SalesOrder> findAll() {
-        var sql = "SELECT id, customer_id, car_id, date, status FROM car_service.sales_order";
-        var orders = jdbcTemplate.query(sql, salesOrderRowMapper);
-        return orders.stream();
+        return findAll(FetchPlan.ORDER);
     }
 
     @Override
-    public Stream<SalesOrder> findByFilter(Predicate<SalesOrder> predicate) {
-        return findAll().filter(predicate);
+    public Stream<SalesOrder> findByFilter(Specification<? super SalesOrder> specification) {
+        return findByFilter(specification, FetchPlan.ORDER);
     }
 
+    @Override
+    public Page<SalesOrder> findPage(Specification<? super SalesOrder> specification, PageRequest<? super SalesOrder> request) {
+        return findPage(specification, request, FetchPlan.ORDER);
+    }
 
-}
+    @Override
+    public Optional<SalesOrder> findById(int id, FetchPlan plan) {
+        var where = OrderColumns.ID.eq(id).toSql();
+        var sql = OrderGraphQuery.select(TABLE, plan, where.sql());
+        return jdbcTemplate.query(sql, salesOrderRowMappers.get(plan), where.args()).stream().findFirst();
+    }
+
+    @Override
+    public Stream<SalesOrder> findAll(FetchPlan plan) {
+        return findByFilter(Specification.all(), plan);
+    }
 
+    @Override
+    public Stream<SalesOrder> findByFilter(Specification<? super SalesOrder> specification, FetchPlan plan) {
+        var where = specification.toSql();
+        var sql = OrderGraphQuery.select(TABLE, plan, where.sql());
+        return jdbcStreamer.stream(sql, salesOrderRowMappers.get(plan), where.args());
+    }
+
+    @Override
+    public Page<SalesOrder> findPage(Specification<? super SalesOrder> specification, PageRequest<? super SalesOrder> request, FetchPlan plan) {
+        var query = KeysetQuery.of(specification, request);
+        var sql = OrderGraphQuery.select(TABLE, plan, query);
+        var rows = queryCache.query("sales_order.findPage", CACHE_READ_TABLES, sql, query.args(),
+                () -> jdbcTemplate.query(sql, salesOrderRowMappers.get(plan), query.args()),
+                order -> order.copy(null, null),
+                order -> order.copy(userRepository::findById, carRepository::findById));
+        return query.toPage(rows, SalesOrder::getId);
+    }
+}
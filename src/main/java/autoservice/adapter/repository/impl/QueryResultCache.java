@@ -0,0 +1,144 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.config.routing.RoutingContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Кэш результатов запросов. Ключ - нормализованный SQL, параметры и версии таблиц, которые запрос читает.
+ * Любая запись через репозиторий увеличивает версию своей таблицы, поэтому все закэшированные
+ * результаты по ней сразу становятся недостижимы без перебора ключей и просто вытесняются.
+ * Версии читаются до выполнения запроса: результат, посчитанный одновременно с записью,
+ * лежит под старыми версиями и новым запросам не попадётся.
+ * Объём ограничен суммарным числом строк во всех результатах.
+ * Сущности изменяемы, поэтому в кэше лежат отсоединённые копии без ленивых загрузчиков,
+ * а каждый вызывающий получает свои копии: изменение одной выдачи не видно другим
+ */
+@Component
+public class QueryResultCache {
+
+    private final Cache<Key, List<?>> cache;
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> hits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> misses = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param maximumRows суммарное число строк в кэше, 0 - кэш выключен
+     * @param ttlSeconds  страховочный срок жизни результата
+     */
+    public QueryResultCache(@Value("${cache.queries.maximum-rows:100000}") long maximumRows,
+                            @Value("${cache.queries.ttl-seconds:300}") long ttlSeconds,
+                            MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        if (maximumRows <= 0) {
+            this.cache = null;
+            return;
+        }
+        Cache<Key, List<?>> results = Caffeine.newBuilder()
+                .maximumWeight(maximumRows)
+                .weigher((Key key, List<?> rows) -> rows.size() + 1)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, results, "queries");
+    }
+
+    /**
+     * Результат запроса из кэша или из базы. Промах читается с primary: страница с отстающей реплики
+     * легла бы в кэш под уже новой версией таблиц и пережила бы запись, которую реплика ещё не проиграла
+     *
+     * @param query  имя запроса для метрик, например car.findPage
+     * @param tables таблицы, которые читает запрос
+     * @param sql    текст запроса
+     * @param args   параметры запроса
+     * @param loader выполнение запроса при промахе
+     * @param copy   копия строки, не разделяющая с исходной изменяемого состояния
+     * @return неизменяемый список строк, принадлежащих только этому вызову
+     */
+    public <T> List<T> query(String query, Collection<String> tables, String sql, Object[] args,
+                             Supplier<List<T>> loader, UnaryOperator<T> copy) {
+        return query(query, tables, sql, args, loader, copy, copy);
+    }
+
+    /**
+     * То же для строк со ссылками на связанные сущности: в кэш кладётся отсоединённая копия,
+     * загрузчики ссылок подключаются заново к каждой выданной копии
+     *
+     * @param detach копия для хранения, без загрузчиков
+     * @param attach копия для выдачи из хранимой
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> query(String query, Collection<String> tables, String sql, Object[] args,
+                             Supplier<List<T>> loader, UnaryOperator<T> detach, UnaryOperator<T> attach) {
+        if (cache == null) return loader.get();
+        var key = new Key(normalize(sql), deepList(args), tables.stream().map(this::version).toList());
+        var cached = (List<T>) cache.getIfPresent(key);
+        if (cached != null) {
+            counter(hits, query, "hit").increment();
+            return cached.stream().map(attach).toList();
+        }
+        counter(misses, query, "miss").increment();
+        var rows = List.copyOf(RoutingContext.onPrimary(loader));
+        cache.put(key, rows.stream().map(detach).toList());
+        return rows;
+    }
+
+    /**
+     * Новая версия таблицы после записи. Вызывается после выполнения изменяющего запроса
+     *
+     * @param table таблица без схемы
+     */
+    public void bump(String table) {
+        versions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Текущая версия таблицы на этом экземпляре. Растёт при каждой записи, в том числе
+     * пришедшей с других экземпляров через LISTEN/NOTIFY; после перезапуска отсчёт начинается заново
+     *
+     * @param table таблица без схемы
+     * @return версия таблицы
+     */
+    public long version(String table) {
+        return versions.computeIfAbsent(table, t -> new AtomicLong()).get();
+    }
+
+    private Counter counter(ConcurrentHashMap<String, Counter> counters, String query, String result) {
+        return counters.computeIfAbsent(query, q -> Counter.builder("cache.query.requests")
+                .description("Запросы к кэшу результатов")
+                .tag("query", q)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private static String normalize(String sql) {
+        return sql.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Параметры как список: массивы (например, для = ANY(?)) сравниваются по содержимому
+     */
+    private static List<Object> deepList(Object[] args) {
+        return Arrays.stream(args)
+                .map(arg -> arg instanceof Object[] array ? deepList(array) : arg)
+                .toList();
+    }
+
+    private record Key(String sql, List<Object> args, List<Long> versions) {
+    }
+}
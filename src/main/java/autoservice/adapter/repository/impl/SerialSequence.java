@@ -0,0 +1,26 @@
+package autoservice.adapter.repository.impl;
+
+/**
+ * Upsert с явным id. Вставка с id мимо последовательности SERIAL её не двигает, и следующая
+ * вставка без id получила бы уже занятое значение. Поэтому в том же запросе последовательность
+ * поднимается до вставленного id, но только если он больше её текущего значения: безусловный
+ * setval мог бы вернуть назад последовательность, которую успел сдвинуть параллельный nextval()
+ */
+final class SerialSequence {
+
+    private SerialSequence() {
+    }
+
+    /**
+     * @param table   таблица со схемой, например car_service.car
+     * @param upsert  INSERT ... ON CONFLICT (id) DO UPDATE без RETURNING
+     * @param columns возвращаемые колонки, среди них id
+     * @return запрос, возвращающий сохранённую строку
+     */
+    static String upsertReturning(String table, String upsert, String columns) {
+        var sequence = "pg_get_serial_sequence('" + table + "', 'id')";
+        return "WITH saved AS (" + upsert + " RETURNING " + columns + ") " +
+                "SELECT saved.*, CASE WHEN saved.id > COALESCE(pg_sequence_last_value(" + sequence + "::regclass), 0) " +
+                "THEN setval(" + sequence + ", saved.id) END FROM saved";
+    }
+}
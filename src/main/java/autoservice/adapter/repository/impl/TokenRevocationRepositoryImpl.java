@@ -0,0 +1,45 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.TokenRevocationRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TokenRevocationRepositoryImpl implements TokenRevocationRepository {
+
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void revoke(int userId, int minVersion) {
+        var sql = "INSERT INTO car_service.token_revocation (user_id, min_version) VALUES (?, ?) " +
+                "ON CONFLICT (user_id) DO UPDATE " +
+                "SET min_version = GREATEST(token_revocation.min_version, EXCLUDED.min_version), created_at = now()";
+        jdbcTemplate.update(sql, userId, minVersion);
+    }
+
+    @Override
+    public Map<Integer, Integer> findMinVersions() {
+        var sql = "SELECT user_id, min_version FROM car_service.token_revocation";
+        var result = new HashMap<Integer, Integer>();
+        jdbcTemplate.query(sql, rs -> {
+            result.put(rs.getInt(1), rs.getInt(2));
+        });
+        return result;
+    }
+
+    @Override
+    public int deleteOlderThan(Instant threshold) {
+        var sql = "DELETE FROM car_service.token_revocation WHERE created_at < ?";
+        return jdbcTemplate.update(sql, Timestamp.from(threshold));
+    }
+}
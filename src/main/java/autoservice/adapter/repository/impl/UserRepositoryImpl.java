@@ -1,20 +1,24 @@
 package autoservice.adapter.repository.impl;
 
+import autoservice.adapter.repository.DuplicateUserException;
 import autoservice.adapter.repository.UserRepository;
+import autoservice.adapter.repository.page.KeysetQuery;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.domen.model.User;
-import autoservice.domen.model.enums.Role;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.postgresql.util.PSQLException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Repository
@@ -22,52 +26,92 @@ import java.util.stream.Stream;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class UserRepositoryImpl implements UserRepository {
 
-    JdbcTemplate jdbcTemplate;
+    private static final String TABLE = "user";
+    private static final String USERNAME_INDEX = "user_username_uindex";
+    private static final String EMAIL_INDEX = "user_email_uindex";
 
-    private final RowMapper<User> userRowMapper = (rs, rowNum) -> {
-        var id = rs.getInt("id");
-        var username = rs.getString("username");
-        var password = rs.getString("password");
-        var name = rs.getString("name");
-        var surname = rs.getString("surname");
-        var phone = rs.getString("phone");
-        var role = Role.valueOf(rs.getString("role"));
-        var email = rs.getString("email");
-        return new User(id, role, email, username, password, name, surname, phone);
-    };
+    private static final BatchInsert<User> BATCH_INSERT = new BatchInsert<>("car_service.user",
+            List.of("username", "password", "name", "surname", "phone", "role", "email"),
+            user -> new Object[]{user.getUsername(), user.getPassword(), user.getName(),
+                    user.getSurname(), user.getPhone(), user.getRole().name(), user.getEmail()},
+            (user, id) -> {
+                user.setId(id);
+                user.setVersion(0);
+            });
 
+    JdbcTemplate jdbcTemplate;
+    JdbcStreamer jdbcStreamer;
+    QueryResultCache queryCache;
+
+    private final RowMapper<User> userRowMapper = (rs, rowNum) -> EntityRowMappers.user(rs, "");
+
+    /**
+     * Вставка одним запросом. Занятые username или email отсекаются уникальными индексами,
+     * по имени нарушенного индекса понятно, какое поле совпало
+     *
+     * @return созданный пользователь
+     * @throws DuplicateUserException если username или email уже заняты
+     */
     @Override
     public Optional<User> create(User user) {
-        if (user.getId() == null || !existsById(user.getId())) {
-            var insertSql = "INSERT INTO car_service.user (username, password, name, surname, phone, role, email) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-            var keyHolder = new GeneratedKeyHolder();
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS);
-                ps.setString(1, user.getUsername());
-                ps.setString(2, user.getPassword());
-                ps.setString(3, user.getName());
-                ps.setString(4, user.getSurname());
-                ps.setString(5, user.getPhone());
-                ps.setString(6, user.getRole().name());
-                ps.setString(7, user.getEmail());
-                return ps;
-            }, keyHolder);
-
-            var generatedId = keyHolder.getKey();
-            if (generatedId != null) {
-                user.setId(generatedId.intValue());
-            }
-            return Optional.of(user);
+        var sql = "INSERT INTO car_service.user (username, password, name, surname, phone, role, email) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING id";
+        Integer id;
+        try {
+            id = jdbcTemplate.queryForObject(sql, Integer.class,
+                    user.getUsername(),
+                    user.getPassword(),
+                    user.getName(),
+                    user.getSurname(),
+                    user.getPhone(),
+                    user.getRole().name(),
+                    user.getEmail());
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e);
+        } finally {
+            queryCache.bump(TABLE);
+        }
+        user.setId(id);
+        user.setVersion(0);
+        return Optional.of(user);
+    }
+
+    /**
+     * @throws DuplicateUserException если username или email хотя бы одного пользователя уже заняты
+     */
+    @Override
+    public List<User> createAll(Collection<User> users) {
+        try {
+            return BATCH_INSERT.insert(jdbcTemplate, users);
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e);
+        } finally {
+            queryCache.bump(TABLE);
         }
-        return Optional.empty();
+    }
+
+    /**
+     * Поле по имени нарушенного уникального индекса из changelog 200-user-unique-indexes
+     */
+    private static RuntimeException duplicate(DuplicateKeyException e) {
+        var constraint = e.getCause() instanceof PSQLException psql && psql.getServerErrorMessage() != null
+                ? psql.getServerErrorMessage().getConstraint() : null;
+        if (USERNAME_INDEX.equals(constraint)) return new DuplicateUserException("username", e);
+        if (EMAIL_INDEX.equals(constraint)) return new DuplicateUserException("email", e);
+        return e;
     }
 
     @Override
     public int delete(User user) {
+        return deleteById(user.getId());
+    }
+
+    @Override
+    public int deleteById(int id) {
         var sql = "DELETE FROM car_service.user WHERE id = ?";
-        return jdbcTemplate.update(sql, user.getId());
+        var deleted = jdbcTemplate.update(sql, id);
+        queryCache.bump(TABLE);
+        return deleted;
     }
 
     @Override
@@ -77,35 +121,104 @@ public class UserRepositoryImpl implements UserRepository {
         return count != null && count > 0;
     }
 
+    /**
+     * @throws DuplicateUserException если новые username или email уже заняты другим пользователем
+     */
     @Override
     public int update(User user) {
-        var sql = "UPDATE car_service.user SET username = ?, password = ?, name = ?, surname = ?, phone = ?, role = ?, email = ? WHERE id = ?";
-        return jdbcTemplate.update(sql,
-                user.getUsername(),
-                user.getPassword(),
-                user.getName(),
-                user.getSurname(),
-                user.getPhone(),
-                user.getRole().name(),
-                user.getEmail(),
-                user.getId());
+        var sql = "UPDATE car_service.user SET username = ?, password = ?, name = ?, surname = ?, phone = ?, role = ?, email = ?, " +
+                "version = version + 1 WHERE id = ? AND version = ?";
+        int updated;
+        try {
+            updated = jdbcTemplate.update(sql,
+                    user.getUsername(),
+                    user.getPassword(),
+                    user.getName(),
+                    user.getSurname(),
+                    user.getPhone(),
+                    user.getRole().name(),
+                    user.getEmail(),
+                    user.getId(),
+                    user.getVersion());
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e);
+        } finally {
+            queryCache.bump(TABLE);
+        }
+        if (updated > 0) user.setVersion(user.getVersion() + 1);
+        return updated;
+    }
+
+    /**
+     * @throws DuplicateUserException если новые username или email уже заняты другим пользователем
+     */
+    @Override
+    public Optional<User> updateReturning(User user) {
+        var sql = "UPDATE car_service.user SET username = ?, password = ?, name = ?, surname = ?, phone = ?, role = ?, email = ?, " +
+                "version = version + 1 WHERE id = ? AND version = ? RETURNING " + EntityRowMappers.USER_COLUMNS;
+        try {
+            return jdbcTemplate.query(sql, userRowMapper,
+                    user.getUsername(), user.getPassword(), user.getName(), user.getSurname(),
+                    user.getPhone(), user.getRole().name(), user.getEmail(), user.getId(), user.getVersion())
+                    .stream().findFirst();
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e);
+        } finally {
+            queryCache.bump(TABLE);
+        }
+    }
+
+    /**
+     * @throws DuplicateUserException если новые username или email уже заняты другим пользователем
+     */
+    @Override
+    public Optional<User> upsert(User user) {
+        if (user.getId() == null) return create(user);
+        var sql = SerialSequence.upsertReturning("car_service.\"user\"",
+                "INSERT INTO car_service.user (id, username, password, name, surname, phone, role, email) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET username = EXCLUDED.username, password = EXCLUDED.password, " +
+                "name = EXCLUDED.name, surname = EXCLUDED.surname, phone = EXCLUDED.phone, " +
+                "role = EXCLUDED.role, email = EXCLUDED.email, version = \"user\".version + 1",
+                EntityRowMappers.USER_COLUMNS);
+        try {
+            return jdbcTemplate.query(sql, userRowMapper,
+                    user.getId(), user.getUsername(), user.getPassword(), user.getName(), user.getSurname(),
+                    user.getPhone(), user.getRole().name(), user.getEmail())
+                    .stream().findFirst();
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e);
+        } finally {
+            queryCache.bump(TABLE);
+        }
     }
 
     @Override
     public Optional<User> findById(int id) {
-        String sql = "SELECT id, email, username, password, name, surname, phone, role FROM car_service.user WHERE id = ?";
+        String sql = "SELECT id, email, username, password, name, surname, phone, role, version FROM car_service.user WHERE id = ?";
         return jdbcTemplate.query(sql, userRowMapper, id).stream().findFirst();
     }
 
     @Override
     public Stream<User> findAll() {
-        var sql = "SELECT id, username, password, name, surname, phone, role, email FROM car_service.user";
-        return jdbcTemplate.query(sql, userRowMapper).stream();
+        var sql = "SELECT id, username, password, name, surname, phone, role, email, version FROM car_service.user";
+        return jdbcStreamer.stream(sql, userRowMapper);
+    }
+
+    @Override
+    public Stream<User> findByFilter(Specification<? super User> specification) {
+        var where = specification.toSql();
+        var sql = "SELECT id, username, password, name, surname, phone, role, email, version FROM car_service.user WHERE " + where.sql();
+        return jdbcStreamer.stream(sql, userRowMapper, where.args());
     }
 
     @Override
-    public Stream<User> findByFilter(Predicate<User> condition) {
-        return findAll().filter(condition);
+    public Page<User> findPage(Specification<? super User> specification, PageRequest<? super User> request) {
+        var query = KeysetQuery.of(specification, request);
+        var sql = "SELECT id, username, password, name, surname, phone, role, email, version FROM car_service.user WHERE " + query.suffix();
+        var rows = queryCache.query("user.findPage", List.of(TABLE), sql, query.args(),
+                () -> jdbcTemplate.query(sql, userRowMapper, query.args()), User::copy);
+        return query.toPage(rows, User::getId);
     }
 
     public boolean existsByUsername(String username) {
@@ -122,7 +235,7 @@ public class UserRepositoryImpl implements UserRepository {
 
     @Override
     public Optional<User> findByUsername(String username) {
-        var sql = "SELECT id, role, email, username, password, name, surname, phone FROM car_service.user WHERE username = ?";
+        var sql = "SELECT id, role, email, username, password, name, surname, phone, version FROM car_service.user WHERE username = ?";
         return jdbcTemplate.query(sql, userRowMapper, username)
                 .stream()
                 .findFirst();
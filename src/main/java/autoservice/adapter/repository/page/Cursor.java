@@ -0,0 +1,33 @@
+package autoservice.adapter.repository.page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в упорядоченной выборке: значение ключа сортировки и id последней выданной записи.
+ * Клиенту отдаётся в виде непрозрачной строки
+ *
+ * @param sortKey имя ключа сортировки
+ * @param value   значение ключа сортировки
+ * @param lastId  id последней записи
+ */
+record Cursor(String sortKey, String value, int lastId) {
+
+    String encode() {
+        var raw = sortKey + ':' + value + ':' + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var first = raw.indexOf(':');
+            var last = raw.lastIndexOf(':');
+            if (first < 0 || first == last) throw new InvalidPageRequestException("Некорректный курсор");
+            return new Cursor(raw.substring(0, first), raw.substring(first + 1, last),
+                    Integer.parseInt(raw.substring(last + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Некорректный курсор");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package autoservice.adapter.repository.page;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPageRequestException extends IllegalArgumentException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,104 @@
+package autoservice.adapter.repository.page;
+
+import autoservice.adapter.repository.specification.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Условие, порядок и лимит для выборки страницы по ключу:
+ * {@code WHERE <условие> AND (col, id) > (?, ?) ORDER BY col, id LIMIT ?}.
+ * Запрашивается на одну запись больше размера страницы, чтобы понять, есть ли следующая
+ *
+ * @param where   условие с учётом курсора
+ * @param orderBy колонки сортировки
+ * @param params  параметры условия и лимит последним параметром
+ * @param request исходный запрос страницы
+ */
+public record KeysetQuery(String where, List<String> orderBy, List<Object> params, PageRequest<?> request) {
+
+    public static KeysetQuery of(Specification<?> specification, PageRequest<?> request) {
+        var where = specification.toSql();
+        var sql = new StringBuilder(where.sql());
+        var params = new ArrayList<>(where.params());
+        var cursor = request.decodedCursor();
+        var sortKey = request.sortKey();
+
+        if (cursor != null) {
+            if (sortKey == null) {
+                checkIdCursor(cursor);
+                sql.append(" AND id > ?");
+            } else {
+                sql.append(" AND (").append(sortKey.name()).append(", id) > (?, ?)");
+                params.add(sortKey.parseToJdbc(cursor.value()));
+            }
+            params.add(cursor.lastId());
+        }
+        params.add(request.size() + 1);
+
+        var orderBy = sortKey == null ? List.of("id") : List.of(sortKey.name(), "id");
+        return new KeysetQuery(sql.toString(), orderBy, List.copyOf(params), request);
+    }
+
+    /**
+     * При сортировке по id значение курсора и есть id последней записи, расхождение значит подделку
+     */
+    private static void checkIdCursor(Cursor cursor) {
+        try {
+            if (Integer.parseInt(cursor.value()) == cursor.lastId()) return;
+        } catch (NumberFormatException e) {
+            // ниже тот же ответ, что и для несовпадения
+        }
+        throw new InvalidPageRequestException("Некорректный курсор");
+    }
+
+    /**
+     * Хвост запроса: условие, сортировка и лимит
+     */
+    public String suffix() {
+        return where + " ORDER BY " + orderBy("") + " LIMIT ?";
+    }
+
+    /**
+     * Сортировка с псевдонимом таблицы
+     *
+     * @param alias псевдоним с точкой, например "o."
+     */
+    public String orderBy(String alias) {
+        var result = new StringBuilder();
+        for (var column : orderBy) {
+            if (!result.isEmpty()) result.append(", ");
+            result.append(alias).append(column);
+        }
+        return result.toString();
+    }
+
+    public Object[] args() {
+        return params.toArray();
+    }
+
+    /**
+     * Сборка страницы из выбранных строк
+     *
+     * @param rows     строки, не более size + 1
+     * @param idGetter получение id записи
+     * @return страница с курсором на следующую
+     */
+    public <E> Page<E> toPage(List<E> rows, ToIntFunction<E> idGetter) {
+        if (rows.size() <= request.size()) {
+            return new Page<>(rows, null);
+        }
+        var items = rows.subList(0, request.size());
+        var last = items.get(items.size() - 1);
+        var sortKey = request.sortKey();
+        var value = sortKey == null ? String.valueOf(idGetter.applyAsInt(last)) : valueOf(sortKey, last);
+        var next = new Cursor(request.sortKeyName(), value, idGetter.applyAsInt(last));
+        return new Page<>(List.copyOf(items), next.encode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, V> String valueOf(SortKey<T, V> sortKey, Object entity) {
+        return sortKey.valueOf((T) entity);
+    }
+}
@@ -0,0 +1,18 @@
+package autoservice.adapter.repository.page;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница выборки
+ *
+ * @param items      записи страницы
+ * @param nextCursor курсор следующей страницы, null если страница последняя
+ * @param <T>        тип записей
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public <R> Page<R> map(Function<List<T>, List<R>> mapper) {
+        return new Page<>(mapper.apply(items), nextCursor);
+    }
+}
@@ -0,0 +1,41 @@
+package autoservice.adapter.repository.page;
+
+/**
+ * Запрос страницы по ключу (keyset): следующая страница начинается строго после курсора
+ *
+ * @param cursor  курсор из предыдущей страницы, null для первой страницы
+ * @param size    размер страницы
+ * @param sortKey ключ сортировки, null для сортировки по id
+ * @param <T>     тип сущности
+ */
+public record PageRequest<T>(String cursor, int size, SortKey<T, ?> sortKey) {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+    static final String ID_KEY = "id";
+
+    public PageRequest {
+        size = Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    public static <T> PageRequest<T> of(String cursor, int size) {
+        return new PageRequest<>(cursor, size, null);
+    }
+
+    public static <T> PageRequest<T> of(String cursor, int size, SortKey<T, ?> sortKey) {
+        return new PageRequest<>(cursor, size, sortKey);
+    }
+
+    String sortKeyName() {
+        return sortKey == null ? ID_KEY : sortKey.name();
+    }
+
+    Cursor decodedCursor() {
+        if (cursor == null || cursor.isBlank()) return null;
+        var decoded = Cursor.decode(cursor);
+        if (!decoded.sortKey().equals(sortKeyName())) {
+            throw new InvalidPageRequestException("Курсор выдан для другой сортировки");
+        }
+        return decoded;
+    }
+}
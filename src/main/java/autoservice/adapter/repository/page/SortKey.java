@@ -0,0 +1,41 @@
+package autoservice.adapter.repository.page;
+
+import autoservice.adapter.repository.specification.Column;
+
+import java.util.function.Function;
+
+/**
+ * Дополнительный ключ сортировки для постраничной выборки.
+ * Порядок всегда дополняется id, чтобы ключ был уникальным
+ *
+ * @param column колонка сортировки
+ * @param getter значение колонки у сущности, из него строится курсор
+ * @param parser разбор значения из курсора
+ * @param <T>    тип сущности
+ * @param <V>    тип значения
+ */
+public record SortKey<T, V>(Column<T, V> column, Function<T, V> getter, Function<String, V> parser) {
+
+    public static <T, V> SortKey<T, V> of(Column<T, V> column, Function<T, V> getter, Function<String, V> parser) {
+        return new SortKey<>(column, getter, parser);
+    }
+
+    public String name() {
+        return column.name();
+    }
+
+    String valueOf(T entity) {
+        return String.valueOf(getter.apply(entity));
+    }
+
+    /**
+     * @throws InvalidPageRequestException если значение из курсора не разбирается: курсор приходит от клиента
+     */
+    Object parseToJdbc(String value) {
+        try {
+            return column.toJdbc(parser.apply(value));
+        } catch (RuntimeException e) {
+            throw new InvalidPageRequestException("Некорректный курсор");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package autoservice.adapter.repository.specification;
+
+import autoservice.adapter.repository.page.InvalidPageRequestException;
+import autoservice.adapter.repository.page.SortKey;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+
+/**
+ * Колонки таблицы car_service.car
+ */
+public final class CarColumns {
+    public static final Column<Car, Integer> ID = Column.of("id");
+    public static final Column<Car, CarState> STATE = Column.ofEnum("state");
+    public static final Column<Car, String> MAKE = Column.of("make");
+    public static final Column<Car, String> MODEL = Column.of("model");
+    public static final Column<Car, Integer> YEAR = Column.of("year");
+    public static final Column<Car, Long> PRICE = Column.of("price");
+
+    public static final SortKey<Car, Long> BY_PRICE = SortKey.of(PRICE, Car::getPrice, Long::valueOf);
+    public static final SortKey<Car, Integer> BY_YEAR = SortKey.of(YEAR, Car::getYear, Integer::valueOf);
+
+    private CarColumns() {
+    }
+
+    /**
+     * Ключ сортировки по имени из запроса
+     *
+     * @param name id, price или year
+     * @return ключ сортировки, null для сортировки по id
+     */
+    public static SortKey<Car, ?> sortKey(String name) {
+        if (name == null || name.isBlank() || name.equals(ID.name())) return null;
+        if (name.equals(BY_PRICE.name())) return BY_PRICE;
+        if (name.equals(BY_YEAR.name())) return BY_YEAR;
+        throw new InvalidPageRequestException("Неизвестная сортировка: " + name);
+    }
+}
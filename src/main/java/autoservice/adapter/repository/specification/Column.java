@@ -0,0 +1,125 @@
+package autoservice.adapter.repository.specification;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Колонка таблицы, по которой можно строить условия
+ *
+ * @param <T> тип сущности
+ * @param <V> тип значения колонки
+ */
+public final class Column<T, V> {
+
+    private final String name;
+    private final Function<V, Object> toJdbc;
+
+    private Column(String name, Function<V, Object> toJdbc) {
+        this.name = name;
+        this.toJdbc = toJdbc;
+    }
+
+    public static <T, V> Column<T, V> of(String name) {
+        return new Column<>(name, value -> value);
+    }
+
+    public static <T, V extends Enum<V>> Column<T, V> ofEnum(String name) {
+        return new Column<>(name, Enum::name);
+    }
+
+    public static <T, V> Column<T, V> of(String name, Function<V, Object> toJdbc) {
+        return new Column<>(name, toJdbc);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Object toJdbc(V value) {
+        return value == null ? null : toJdbc.apply(value);
+    }
+
+    public Specification<T> eq(V value) {
+        if (value == null) return (sql, params) -> sql.append(name).append(" IS NULL");
+        return compare("=", value);
+    }
+
+    public Specification<T> notEq(V value) {
+        if (value == null) return (sql, params) -> sql.append(name).append(" IS NOT NULL");
+        return compare("<>", value);
+    }
+
+    public Specification<T> gt(V value) {
+        return compare(">", value);
+    }
+
+    public Specification<T> ge(V value) {
+        return compare(">=", value);
+    }
+
+    public Specification<T> lt(V value) {
+        return compare("<", value);
+    }
+
+    public Specification<T> le(V value) {
+        return compare("<=", value);
+    }
+
+    public Specification<T> between(V from, V to) {
+        requireValue("BETWEEN", from);
+        requireValue("BETWEEN", to);
+        return (sql, params) -> {
+            sql.append(name).append(" BETWEEN ? AND ?");
+            params.add(toJdbc(from));
+            params.add(toJdbc(to));
+        };
+    }
+
+    public Specification<T> in(Collection<? extends V> values) {
+        if (values.isEmpty()) return (sql, params) -> sql.append("FALSE");
+        values.forEach(value -> requireValue("IN", value));
+        return (sql, params) -> {
+            sql.append(name).append(" IN (");
+            var first = true;
+            for (V value : values) {
+                if (!first) sql.append(", ");
+                sql.append('?');
+                params.add(toJdbc(value));
+                first = false;
+            }
+            sql.append(')');
+        };
+    }
+
+    /**
+     * Сравнение по шаблону LIKE, без учёта регистра
+     *
+     * @param pattern шаблон, % и _ работают как в SQL
+     * @throws IllegalArgumentException если шаблон null
+     */
+    public Specification<T> like(String pattern) {
+        requireValue("ILIKE", pattern);
+        return (sql, params) -> {
+            sql.append(name).append(" ILIKE ?");
+            params.add(pattern);
+        };
+    }
+
+    private Specification<T> compare(String operator, V value) {
+        requireValue(operator, value);
+        return (sql, params) -> {
+            sql.append(name).append(' ').append(operator).append(" ?");
+            params.add(toJdbc(value));
+        };
+    }
+
+    /**
+     * null в сравнении дал бы в SQL UNKNOWN и пустую выборку. Для проверки на null есть eq(null) и notEq(null),
+     * в остальных условиях пропущенное значение - ошибка вызывающего
+     */
+    private void requireValue(String operator, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Не задано значение для условия " + name + " " + operator);
+        }
+    }
+}
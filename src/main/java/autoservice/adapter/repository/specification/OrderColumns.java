@@ -0,0 +1,21 @@
+package autoservice.adapter.repository.specification;
+
+import autoservice.domen.model.Order;
+import autoservice.domen.model.enums.OrderStatus;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Колонки таблиц car_service.sales_order и car_service.service_order
+ */
+public final class OrderColumns {
+    public static final Column<Order, Integer> ID = Column.of("id");
+    public static final Column<Order, LocalDate> DATE = Column.of("date", Date::valueOf);
+    public static final Column<Order, OrderStatus> STATUS = Column.ofEnum("status");
+    public static final Column<Order, Integer> CUSTOMER_ID = Column.of("customer_id");
+    public static final Column<Order, Integer> CAR_ID = Column.of("car_id");
+
+    private OrderColumns() {
+    }
+}
@@ -0,0 +1,68 @@
+package autoservice.adapter.repository.specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Типизированное условие выборки, которое компилируется в параметризованный WHERE
+ *
+ * @param <T> тип сущности
+ */
+@FunctionalInterface
+public interface Specification<T> {
+
+    /**
+     * Запись условия в SQL
+     *
+     * @param sql    буфер SQL
+     * @param params параметры запроса
+     */
+    void render(StringBuilder sql, List<Object> params);
+
+    default Specification<T> and(Specification<? super T> other) {
+        return (sql, params) -> {
+            sql.append('(');
+            render(sql, params);
+            sql.append(" AND ");
+            other.render(sql, params);
+            sql.append(')');
+        };
+    }
+
+    default Specification<T> or(Specification<? super T> other) {
+        return (sql, params) -> {
+            sql.append('(');
+            render(sql, params);
+            sql.append(" OR ");
+            other.render(sql, params);
+            sql.append(')');
+        };
+    }
+
+    default Specification<T> not() {
+        return (sql, params) -> {
+            sql.append("NOT (");
+            render(sql, params);
+            sql.append(')');
+        };
+    }
+
+    /**
+     * Компиляция условия
+     *
+     * @return SQL условия и его параметры
+     */
+    default SqlFragment toSql() {
+        var sql = new StringBuilder();
+        var params = new ArrayList<>();
+        render(sql, params);
+        return new SqlFragment(sql.toString(), List.copyOf(params));
+    }
+
+    /**
+     * Условие, под которое подходит любая запись
+     */
+    static <T> Specification<T> all() {
+        return (sql, params) -> sql.append("TRUE");
+    }
+}
@@ -0,0 +1,16 @@
+package autoservice.adapter.repository.specification;
+
+import java.util.List;
+
+/**
+ * Скомпилированный фрагмент SQL с параметрами для PreparedStatement
+ *
+ * @param sql    текст условия с плейсхолдерами
+ * @param params значения параметров в порядке плейсхолдеров
+ */
+public record SqlFragment(String sql, List<Object> params) {
+
+    public Object[] args() {
+        return params.toArray();
+    }
+}
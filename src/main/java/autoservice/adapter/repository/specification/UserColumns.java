@@ -0,0 +1,20 @@
+package autoservice.adapter.repository.specification;
+
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.Role;
+
+/**
+ * Колонки таблицы car_service.user
+ */
+public final class UserColumns {
+    public static final Column<User, Integer> ID = Column.of("id");
+    public static final Column<User, Role> ROLE = Column.ofEnum("role");
+    public static final Column<User, String> EMAIL = Column.of("email");
+    public static final Column<User, String> USERNAME = Column.of("username");
+    public static final Column<User, String> NAME = Column.of("name");
+    public static final Column<User, String> SURNAME = Column.of("surname");
+    public static final Column<User, String> PHONE = Column.of("phone");
+
+    private UserColumns() {
+    }
+}
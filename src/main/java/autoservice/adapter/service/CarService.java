@@ -1,15 +1,26 @@
 package autoservice.adapter.service;
 
+import autoservice.domen.dto.CarImportResponse;
 import autoservice.domen.model.Car;
 import autoservice.domen.model.enums.CarState;
 import autoservice.domen.model.enums.Role;
 import autoservice.domen.model.User;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
-public interface CarService extends EntityService<Car>{ }
+public interface CarService extends EntityService<Car> {
+
+    /**
+     * Импорт автомобилей из CSV (make, model, year, price, state) без загрузки файла в память
+     *
+     * @param csv содержимое файла
+     * @return число добавленных строк и отклонённые строки с причинами
+     */
+    CarImportResponse importCsv(InputStream csv);
+}
 
 
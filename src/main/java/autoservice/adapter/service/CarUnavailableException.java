@@ -0,0 +1,14 @@
+package autoservice.adapter.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Автомобиль уже занят другим заказом или находится в состоянии, в котором заказ на него не оформить
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CarUnavailableException extends RuntimeException {
+    public CarUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package autoservice.adapter.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Запись изменена другим запросом после того, как её прочитали: версия в базе уже другая
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrentUpdateException extends RuntimeException {
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
@@ -1,24 +1,44 @@
 package autoservice.adapter.service;
 
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.domen.model.User;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public interface EntityService<T> {
     T getById(int id);
 
-    T getEntityByFilter(Predicate<T> predicate);
+    T getEntityByFilter(Specification<? super T> specification);
 
     List<T> getAll();
 
-    List<T> getEntitiesByFilter(Predicate<T> predicate);
+    List<T> getEntitiesByFilter(Specification<? super T> specification);
+
+    /**
+     * Ленивый стрим сущностей по фильтру. Стрим держит соединение с БД и должен быть закрыт
+     */
+    Stream<T> streamByFilter(Specification<? super T> specification);
+
+    Page<T> getPage(Specification<? super T> specification, PageRequest<? super T> request);
 
     List<T> getByString(List<T> entities, String searchString);
 
     T create(T entity);
+
+    /**
+     * Пакетное создание: все записи или ни одной
+     *
+     * @return созданные записи с id, в исходном порядке
+     */
+    List<T> createAll(List<T> entities);
+
     void delete(T entity);
+
+    void deleteById(int id);
+
     void update(T entity);
 }
@@ -1,19 +1,35 @@
 package autoservice.adapter.service;
 
+import autoservice.adapter.repository.FetchPlan;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.domen.model.Order;
 import autoservice.domen.model.enums.OrderStatus;
 
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface MyOrderService<T extends Order> extends EntityService<T> {
     void changeStatus(T order, OrderStatus newStatus);
+
+    T getById(int id, FetchPlan plan);
+
+    List<T> getAll(FetchPlan plan);
+
+    List<T> getEntitiesByFilter(Specification<? super T> specification, FetchPlan plan);
+
+    Page<T> getPage(Specification<? super T> specification, PageRequest<? super T> request, FetchPlan plan);
+
+    Stream<T> streamByFilter(Specification<? super T> specification, FetchPlan plan);
+
     @Override
     default List<T> getByString(List<T> orders, String searchString) {
         return orders.stream()
                 .filter(order -> {
                     var matchesId = String.valueOf(order.getId()).equals(searchString);
-                    var matchesCustomerName = order.getCustomer().getName().equalsIgnoreCase(searchString);
+                    var matchesCustomerName = searchString.equalsIgnoreCase(order.getCustomer().get().getName());
                     var matchesStatus = order.getStatus().toString().equalsIgnoreCase(searchString);
                     var matchesDate = order.getDate().toString().contains(searchString);
 
@@ -0,0 +1,17 @@
+package autoservice.adapter.service;
+
+import lombok.Getter;
+
+/**
+ * Очередь хеширования паролей заполнена: запрос отклоняется сразу, клиенту отдаётся 503 с Retry-After
+ */
+@Getter
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
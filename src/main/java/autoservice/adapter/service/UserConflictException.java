@@ -1,7 +1,15 @@
 package autoservice.adapter.service;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
 public class UserConflictException extends RuntimeException{
     public UserConflictException(String message) {
         super(message);
     }
+
+    public UserConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
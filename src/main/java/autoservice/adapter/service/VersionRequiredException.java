@@ -0,0 +1,14 @@
+package autoservice.adapter.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Изменение пришло без версии записи: применить его вслепую значит затереть чужое изменение
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_REQUIRED)
+public class VersionRequiredException extends RuntimeException {
+    public VersionRequiredException(String message) {
+        super(message);
+    }
+}
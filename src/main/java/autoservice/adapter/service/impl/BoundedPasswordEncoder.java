@@ -0,0 +1,33 @@
+package autoservice.adapter.service.impl;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Кодировщик паролей, выполняющий хеширование и проверку в {@link PasswordHashingExecutor}.
+ * Через него идут и регистрация, и проверка пароля при входе в DaoAuthenticationProvider
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    PasswordEncoder delegate;
+    PasswordHashingExecutor executor;
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.call(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.call(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
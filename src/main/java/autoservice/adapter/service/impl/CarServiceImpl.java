@@ -1,24 +1,41 @@
 package autoservice.adapter.service.impl;
 
+import autoservice.adapter.repository.CarImportRepository;
 import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.adapter.service.CarService;
 import autoservice.adapter.service.NotFoundException;
+import autoservice.adapter.service.VersionRequiredException;
+import autoservice.domen.dto.CarImportResponse;
 import autoservice.domen.model.Car;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
 import java.util.List;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @AllArgsConstructor
 public class CarServiceImpl implements CarService {
 
+    /**
+     * Сколько отклонённых строк импорта возвращать с причинами
+     */
+    private static final int IMPORT_REJECT_LIMIT = 100;
+
+    private static final String ENTITY = "car";
+
     CarRepository carRepo;
+    CarImportRepository carImportRepo;
+    OptimisticRetry optimisticRetry;
+    SingleFlight singleFlight;
 
     public List<Car> getByString(List<Car> cars, String searchString) {
         return cars.stream()
@@ -41,21 +58,42 @@ public class CarServiceImpl implements CarService {
     }
 
     @Override
-    public Car getEntityByFilter(Predicate<Car> predicate) {
-        return carRepo.findByFilter(predicate).findFirst().orElseThrow(
-                () -> new NotFoundException(NotFoundException.MSG));
+    public Car getEntityByFilter(Specification<? super Car> specification) {
+        try (var found = carRepo.findByFilter(specification)) {
+            return found.findFirst()
+                    .orElseThrow(() -> new NotFoundException(NotFoundException.MSG));
+        }
     }
 
     @Override
     public List<Car> getAll() {
-        var cars = carRepo.findAll().toList();
-        if (cars.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
-        return cars;
+        return singleFlight.execute("car.getAll", List.of(), () -> {
+            try (var stream = carRepo.findAll()) {
+                var cars = stream.toList();
+                if (cars.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+                return cars;
+            }
+        }, cars -> cars.stream().map(Car::copy).toList());
+    }
+
+    @Override
+    public List<Car> getEntitiesByFilter(Specification<? super Car> specification) {
+        // Ключ - скомпилированный SQL условия с параметрами: разные экземпляры одного условия совпадут
+        return singleFlight.execute("car.getEntitiesByFilter", specification.toSql(), () -> {
+            try (var stream = carRepo.findByFilter(specification)) {
+                return stream.toList();
+            }
+        }, cars -> cars.stream().map(Car::copy).toList());
     }
 
     @Override
-    public List<Car> getEntitiesByFilter(Predicate<Car> predicate) {
-        return carRepo.findByFilter(predicate).toList();
+    public Stream<Car> streamByFilter(Specification<? super Car> specification) {
+        return carRepo.findByFilter(specification);
+    }
+
+    @Override
+    public Page<Car> getPage(Specification<? super Car> specification, PageRequest<? super Car> request) {
+        return carRepo.findPage(specification, request);
     }
 
     @Override
@@ -64,20 +102,46 @@ public class CarServiceImpl implements CarService {
                 .orElseThrow(() -> new RuntimeException("Не удалось создать автомобиль!"));
     }
 
+    @Override
+    public List<Car> createAll(List<Car> cars) {
+        return carRepo.createAll(cars);
+    }
+
+    @Override
+    public CarImportResponse importCsv(InputStream csv) {
+        return carImportRepo.importCsv(csv, IMPORT_REJECT_LIMIT);
+    }
+
     @Override
     public void delete(Car car) {
-        var exist = carRepo.existsById(car.getId());
-        if (!exist) {
+        deleteById(car.getId());
+    }
+
+    @Override
+    public void deleteById(int id) {
+        if (carRepo.deleteById(id) == 0) {
             throw new NotFoundException("Автомобиль для удаления не найден");
         }
     }
 
+    /**
+     * Обновление проверяется один раз по версии от клиента, конфликт сразу уходит клиенту.
+     * Без версии изменение не применяется: перечитать версию и повторить значило бы молча затереть чужую запись
+     */
     @Override
     public void update(Car car) {
-        var exist = carRepo.existsById(car.getId());
-        if (!exist) {
-            throw new NotFoundException("Автомобиль для обновления не найден");
+        if (car.getVersion() == null) {
+            throw new VersionRequiredException("Не указана версия автомобиля");
+        }
+        updateVersioned(car);
+    }
+
+    private void updateVersioned(Car car) {
+        if (carRepo.update(car) == 0) {
+            if (!carRepo.existsById(car.getId())) {
+                throw new NotFoundException("Автомобиль для обновления не найден");
+            }
+            throw optimisticRetry.conflict(ENTITY, car.getId());
         }
-        carRepo.update(car);
     }
 }
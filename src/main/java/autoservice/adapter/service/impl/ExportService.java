@@ -0,0 +1,39 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.repository.ExportRepository;
+import autoservice.adapter.repository.ExportTable;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ExportService {
+
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    ExportRepository exportRepository;
+
+    /**
+     * Выгрузка таблицы в CSV прямо в поток ответа
+     *
+     * @param table что выгружать
+     * @param out   поток ответа
+     * @param gzip  сжимать ли выгрузку
+     * @return число выгруженных строк
+     */
+    public long exportCsv(ExportTable table, OutputStream out, boolean gzip) throws IOException {
+        if (!gzip) {
+            return exportRepository.copyCsv(table, out);
+        }
+        try (var compressed = new GZIPOutputStream(out, GZIP_BUFFER)) {
+            return exportRepository.copyCsv(table, compressed);
+        }
+    }
+}
@@ -1,33 +1,84 @@
 package autoservice.adapter.service.impl;
 
 import autoservice.domen.model.User;
+import autoservice.domen.model.enums.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import lombok.AccessLevel;
-import lombok.experimental.FieldDefaults;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@FieldDefaults(level = AccessLevel.PRIVATE)
 public class JwtService {
 
-    @Value("${token.expirationDays:365}")
-    int expirationDays;
+    private final int expirationDays;
 
-    @Value("${token.signing.key}")
-    String jwtSigningKey;
+    /**
+     * Ключ и парсер собираются один раз, оба потокобезопасны
+     */
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    /**
+     * Уже проверенные токены по SHA-256 от токена. Запись живёт до exp токена,
+     * повторный запрос с тем же токеном не разбирает его и не проверяет подпись
+     */
+    private final Cache<String, Claims> verified;
+
+    public JwtService(@Value("${token.expirationDays:365}") int expirationDays,
+                      @Value("${token.signing.key}") String jwtSigningKey,
+                      @Value("${token.verified-cache-size:10000}") long verifiedCacheSize,
+                      MeterRegistry meterRegistry) {
+        this.expirationDays = expirationDays;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSigningKey));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        Cache<String, Claims> cache = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(untilTokenExpiration())
+                .recordStats()
+                .build();
+        this.verified = CaffeineCacheMetrics.monitor(meterRegistry, cache, "verified_tokens");
+    }
 
+    /**
+     * Проверка подписи и срока действия токена за один разбор
+     *
+     * @param token токен
+     * @return все данные токена
+     * @throws io.jsonwebtoken.JwtException если токен подделан, повреждён или просрочен
+     */
+    public Claims validate(String token) {
+        var hash = sha256(token);
+        var claims = verified.get(hash, key -> parser.parseSignedClaims(token).getPayload());
+        // Кэш вычищает запись по exp лениво, поэтому срок проверяется и на попадании
+        if (isExpired(claims)) {
+            verified.invalidate(hash);
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+        }
+        return claims;
+    }
 
     /**
      * Извлечение имени пользователя из токена
@@ -36,7 +87,7 @@ public class JwtService {
      * @return имя пользователя
      */
     public String extractUserName(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return validate(token).getSubject();
     }
 
     /**
@@ -51,36 +102,39 @@ public class JwtService {
             claims.put("id", customUserDetails.getId());
             claims.put("email", customUserDetails.getEmail());
             claims.put("role", customUserDetails.getRole());
+            claims.put("ver", customUserDetails.getVersion() == null ? 0 : customUserDetails.getVersion());
         }
         return generateToken(claims, userDetails);
     }
 
     /**
-     * Проверка токена на валидность
+     * Пользователь из проверенных данных токена, без обращения к базе. Пароля в токене нет
      *
-     * @param token       токен
-     * @param userDetails данные пользователя
-     * @return true, если токен валиден
+     * @param claims данные токена после {@link #validate(String)}
+     * @return пользователь с id, username, email, ролью и версией на момент выдачи токена
      */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public User extractPrincipal(Claims claims) {
+        var version = claims.get("ver", Integer.class);
+        return User.builder()
+                .id(claims.get("id", Integer.class))
+                .username(claims.getSubject())
+                .email(claims.get("email", String.class))
+                .role(Role.valueOf(claims.get("role", String.class)))
+                .version(version == null ? 0 : version)
+                .build();
     }
 
     /**
-     * Извлечение данных из токена
+     * Проверка токена на валидность
      *
-     * @param token           токен
-     * @param claimsResolvers функция извлечения данных
-     * @param <T>             тип данных
-     * @return данные
+     * @param claims      данные токена после {@link #validate(String)}
+     * @param userDetails данные пользователя
+     * @return true, если токен выдан этому пользователю и не просрочен
      */
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolvers) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolvers.apply(claims);
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isExpired(claims);
     }
 
-
     /**
      * Генерация токена
      *
@@ -94,51 +148,49 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + Duration.ofDays(expirationDays).toMillis()))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    /**
-     * Проверка токена на истечение токена
-     *
-     * @param token токен
-     * @return true, если токен просрочен
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static boolean isExpired(Claims claims) {
+        var expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
     /**
-     * Извлечение даты истечения токена
-     *
-     * @param token токен
-     * @return дата истечения
+     * Срок жизни записи кэша - до exp токена. Токен без exp живёт в кэше до вытеснения по размеру
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static Expiry<String, Claims> untilTokenExpiration() {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                var expiration = claims.getExpiration();
+                if (expiration == null) return Long.MAX_VALUE;
+                var millis = Math.max(0, expiration.getTime() - System.currentTimeMillis());
+                return TimeUnit.MILLISECONDS.toNanos(millis);
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+
+            @Override
+            public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
     }
 
     /**
-     * Извлечение всех данных из токена
-     *
-     * @param token токен
-     * @return данные
+     * Ключ кэша: сам токен не хранится, чтобы дамп памяти не раскрывал действующие токены
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Получение ключа для подписи токена
-     *
-     * @return ключ
-     */
-    private SecretKey getSigningKey() {
-        var keyBytes = Decoders.BASE64.decode(jwtSigningKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String sha256(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
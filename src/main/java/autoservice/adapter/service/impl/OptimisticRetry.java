@@ -0,0 +1,91 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.service.ConcurrentUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Повтор операций чтение-изменение-запись при конфликте версий. Каждая попытка заново читает запись,
+ * между попытками пауза растёт экспоненциально со случайным разбросом, чтобы конкурирующие запросы
+ * не сталкивались снова. После последней неудачной попытки конфликт уходит клиенту как 409
+ */
+@Component
+public class OptimisticRetry {
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticRetry(@Value("${optimistic-lock.max-attempts:3}") int maxAttempts,
+                           @Value("${optimistic-lock.backoff-ms:20}") long backoffMillis,
+                           @Value("${optimistic-lock.max-backoff-ms:200}") long maxBackoffMillis,
+                           MeterRegistry meterRegistry) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Выполнение операции с повтором при {@link ConcurrentUpdateException}
+     *
+     * @param entity  таблица, для метрик
+     * @param attempt попытка, которая сама перечитывает запись
+     * @return результат успешной попытки
+     */
+    public <T> T call(String entity, Supplier<T> attempt) {
+        for (var i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (ConcurrentUpdateException e) {
+                if (i >= maxAttempts) {
+                    counter("optimistic.lock.exhausted", entity).increment();
+                    throw e;
+                }
+                counter("optimistic.lock.retries", entity).increment();
+                backoff(i, e);
+            }
+        }
+    }
+
+    public void run(String entity, Runnable attempt) {
+        call(entity, () -> {
+            attempt.run();
+            return null;
+        });
+    }
+
+    /**
+     * Исключение конфликта версий с учётом в метрике
+     *
+     * @param entity таблица
+     * @param id     id записи
+     * @return исключение для выброса
+     */
+    public ConcurrentUpdateException conflict(String entity, int id) {
+        counter("optimistic.lock.conflicts", entity).increment();
+        return new ConcurrentUpdateException("Запись " + id + " изменена другим запросом, повторите изменение");
+    }
+
+    private void backoff(int attempt, ConcurrentUpdateException conflict) {
+        var ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private Counter counter(String name, String entity) {
+        return Counter.builder(name)
+                .tag("entity", entity)
+                .register(meterRegistry);
+    }
+}
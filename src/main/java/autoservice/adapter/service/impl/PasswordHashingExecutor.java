@@ -0,0 +1,114 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.service.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Отдельный ограниченный пул для BCrypt. Хеширование занимает процессор на десятки миллисекунд,
+ * поэтому всплеск входов не должен забирать потоки сервлет-контейнера у остальных запросов.
+ * Сверх пула и очереди работа не принимается, вызывающий получает {@link PasswordHashingBusyException}
+ */
+@Component
+public class PasswordHashingExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+    private final Timer waitTimer;
+    private final Timer hashTimer;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(@Value("${password-hashing.threads:4}") int threads,
+                                   @Value("${password-hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${password-hashing.timeout-ms:5000}") long timeoutMillis,
+                                   @Value("${password-hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                                   MeterRegistry meterRegistry) {
+        var counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    var thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.waitTimer = Timer.builder("auth.hashing.wait")
+                .description("Ожидание в очереди хеширования")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("auth.hashing.duration")
+                .description("Время хеширования или проверки пароля")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.hashing.rejected")
+                .description("Отклонено из-за заполненной очереди")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.queue", executor, pool -> pool.getQueue().size())
+                .description("Задачи в очереди хеширования")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Потоки, занятые хешированием")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполнение работы с паролем в пуле. Поток запроса ждёт результат не дольше таймаута
+     *
+     * @param work хеширование или проверка пароля
+     * @return результат работы
+     * @throws PasswordHashingBusyException если очередь заполнена или результат не дождались
+     */
+    public <T> T call(Supplier<T> work) {
+        var submitted = System.nanoTime();
+        try {
+            var future = executor.submit(() -> {
+                var started = System.nanoTime();
+                waitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return work.get();
+                } finally {
+                    hashTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+            try {
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                rejected.increment();
+                throw busy();
+            }
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw busy();
+        }
+    }
+
+    private PasswordHashingBusyException busy() {
+        return new PasswordHashingBusyException("Сервис аутентификации перегружен, повторите позже", retryAfterSeconds);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
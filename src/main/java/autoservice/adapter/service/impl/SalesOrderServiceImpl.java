@@ -1,9 +1,15 @@
 package autoservice.adapter.service.impl;
 
 import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.FetchPlan;
 import autoservice.adapter.repository.OrderRepository;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
+import autoservice.adapter.service.CarUnavailableException;
 import autoservice.adapter.service.MyOrderService;
 import autoservice.adapter.service.NotFoundException;
+import autoservice.adapter.service.VersionRequiredException;
 import autoservice.domen.model.SalesOrder;
 import autoservice.domen.model.enums.CarState;
 import autoservice.domen.model.enums.OrderStatus;
@@ -12,15 +18,27 @@ import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class SalesOrderServiceImpl implements MyOrderService<SalesOrder> {
+
+    private static final String ENTITY = "sales_order";
+
+    /**
+     * Состояния автомобиля, в которых на него можно оформить заказ
+     */
+    private static final Set<CarState> CAR_AVAILABLE = EnumSet.of(CarState.FOR_SALE);
+
     OrderRepository orderRepo;
     CarRepository carRepo;
+    OptimisticRetry optimisticRetry;
+    SingleFlight singleFlight;
 
     @Override
     public SalesOrder getById(int id) {
@@ -29,53 +47,153 @@ public class SalesOrderServiceImpl implements MyOrderService<SalesOrder> {
     }
 
     @Override
-    public SalesOrder getEntityByFilter(Predicate<SalesOrder> predicate) {
-        return orderRepo.findByFilter(predicate).findFirst()
+    public SalesOrder getById(int id, FetchPlan plan) {
+        return orderRepo.findById(id, plan)
                 .orElseThrow(() -> new NotFoundException(NotFoundException.MSG));
     }
 
+    @Override
+    public SalesOrder getEntityByFilter(Specification<? super SalesOrder> specification) {
+        try (var found = orderRepo.findByFilter(specification)) {
+            return found.findFirst()
+                    .orElseThrow(() -> new NotFoundException(NotFoundException.MSG));
+        }
+    }
+
     @Override
     public List<SalesOrder> getAll() {
-        var orders = orderRepo.findAll().toList();
-        if (orders.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
-        return orders;
+        return singleFlight.execute("sales_order.getAll", List.of(), () -> {
+            try (var stream = orderRepo.findAll()) {
+                var orders = stream.toList();
+                if (orders.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+                return orders;
+            }
+        }, orders -> orders.stream().map(SalesOrder::copy).toList());
+    }
+
+    @Override
+    public List<SalesOrder> getAll(FetchPlan plan) {
+        return singleFlight.execute("sales_order.getAll", plan, () -> {
+            try (var stream = orderRepo.findAll(plan)) {
+                var orders = stream.toList();
+                if (orders.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+                return orders;
+            }
+        }, orders -> orders.stream().map(SalesOrder::copy).toList());
+    }
+
+    @Override
+    public List<SalesOrder> getEntitiesByFilter(Specification<? super SalesOrder> specification) {
+        try (var stream = orderRepo.findByFilter(specification)) {
+            return stream.toList();
+        }
+    }
+
+    @Override
+    public Stream<SalesOrder> streamByFilter(Specification<? super SalesOrder> specification) {
+        return orderRepo.findByFilter(specification);
+    }
+
+    @Override
+    public Stream<SalesOrder> streamByFilter(Specification<? super SalesOrder> specification, FetchPlan plan) {
+        return orderRepo.findByFilter(specification, plan);
     }
 
     @Override
-    public List<SalesOrder> getEntitiesByFilter(Predicate<SalesOrder> predicate) {
-        return orderRepo.findByFilter(predicate).toList();
+    public Page<SalesOrder> getPage(Specification<? super SalesOrder> specification, PageRequest<? super SalesOrder> request) {
+        return orderRepo.findPage(specification, request);
     }
 
+    @Override
+    public Page<SalesOrder> getPage(Specification<? super SalesOrder> specification, PageRequest<? super SalesOrder> request, FetchPlan plan) {
+        return orderRepo.findPage(specification, request, plan);
+    }
+
+    @Override
+    public List<SalesOrder> getEntitiesByFilter(Specification<? super SalesOrder> specification, FetchPlan plan) {
+        try (var stream = orderRepo.findByFilter(specification, plan)) {
+            return stream.toList();
+        }
+    }
+
+    /**
+     * Смена статуса по свежей версии заказа, при конфликте заказ перечитывается и статус ставится снова
+     */
     @Override
     public void changeStatus(SalesOrder order, OrderStatus newStatus) {
-        order.setStatus(newStatus);
-        orderRepo.update(order);
+        optimisticRetry.run(ENTITY, () -> {
+            var current = orderRepo.findById(order.getId(), FetchPlan.ORDER)
+                    .orElseThrow(() -> new NotFoundException("Заказ для обновления не найден"));
+            current.setStatus(newStatus);
+            updateVersioned(current);
+            order.setStatus(newStatus);
+            order.setVersion(current.getVersion());
+        });
     }
 
+    /**
+     * Продажа одним запросом: автомобиль в продаже переводится в SOLD и заказ вставляется в одном CTE,
+     * поэтому один автомобиль не продать дважды
+     */
     @Override
     public SalesOrder create(SalesOrder order) {
-        var car = order.getCar();
-        car.setState(CarState.FOR_SALE);
-        order.setStatus(OrderStatus.CANCEL);
-        carRepo.update(car);
-        return orderRepo.create(order)
-                .orElseThrow(() -> new RuntimeException("Не удалось создать заказ!"));
+        var created = orderRepo.createClaimingCar(order, CAR_AVAILABLE, CarState.SOLD);
+        if (created.isPresent()) return created.get();
+        if (!carRepo.existsById(order.getCar().getId())) {
+            throw new NotFoundException("Автомобиль не найден");
+        }
+        throw new CarUnavailableException("Автомобиль уже занят другим заказом");
+    }
+
+    /**
+     * Пакетная версия {@link #create} с той же семантикой захвата: все автомобили переводятся в SOLD
+     * одним UPDATE ... WHERE state = ANY(?), заказы вставляются многострочными INSERT в той же транзакции.
+     * Если хотя бы один автомобиль уже занят, не создаётся ни один заказ
+     */
+    @Override
+    public List<SalesOrder> createAll(List<SalesOrder> orders) {
+        var carIds = orders.stream().map(order -> order.getCar().getId()).toList();
+        if (Set.copyOf(carIds).size() != carIds.size()) {
+            throw new CarUnavailableException("Автомобиль указан в пакете дважды");
+        }
+        var created = orderRepo.createAllClaimingCars(orders, CAR_AVAILABLE, CarState.SOLD);
+        if (created.isPresent()) return created.get();
+        if (!carIds.stream().allMatch(carRepo::existsById)) {
+            throw new NotFoundException("Автомобиль не найден");
+        }
+        throw new CarUnavailableException("Автомобиль уже занят другим заказом");
     }
 
     @Override
     public void delete(SalesOrder order) {
-        var exist = orderRepo.existsById(order.getId());
-        if (!exist) {
+        deleteById(order.getId());
+    }
+
+    @Override
+    public void deleteById(int id) {
+        if (orderRepo.deleteById(id) == 0) {
             throw new NotFoundException("Заказ для удаления не найден");
         }
     }
 
+    /**
+     * Обновление проверяется один раз по версии от клиента, конфликт сразу уходит клиенту.
+     * Без версии изменение не применяется: перечитать версию и повторить значило бы молча затереть чужую запись
+     */
     @Override
     public void update(SalesOrder order) {
-        var exist = orderRepo.existsById(order.getId());
-        if (!exist) {
-            throw new NotFoundException("Заказ для обновления не найден");
+        if (order.getVersion() == null) {
+            throw new VersionRequiredException("Не указана версия заказа");
+        }
+        updateVersioned(order);
+    }
+
+    private void updateVersioned(SalesOrder order) {
+        if (orderRepo.update(order) == 0) {
+            if (!orderRepo.existsById(order.getId())) {
+                throw new NotFoundException("Заказ для обновления не найден");
+            }
+            throw optimisticRetry.conflict(ENTITY, order.getId());
         }
-        orderRepo.update(order);
     }
 }
@@ -1,9 +1,15 @@
 package autoservice.adapter.service.impl;
 
 import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.FetchPlan;
 import autoservice.adapter.repository.ServiceOrderRepository;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
+import autoservice.adapter.service.CarUnavailableException;
 import autoservice.adapter.service.MyOrderService;
 import autoservice.adapter.service.NotFoundException;
+import autoservice.adapter.service.VersionRequiredException;
 import autoservice.domen.model.ServiceOrder;
 import autoservice.domen.model.enums.CarState;
 import autoservice.domen.model.enums.OrderStatus;
@@ -12,15 +18,27 @@ import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ServiceOrderServiceImpl implements MyOrderService<ServiceOrder> {
+
+    private static final String ENTITY = "service_order";
+
+    /**
+     * Состояния автомобиля, в которых на него можно оформить заказ
+     */
+    private static final Set<CarState> CAR_AVAILABLE = EnumSet.complementOf(EnumSet.of(CarState.FOR_SERVICE));
+
     ServiceOrderRepository orderRepo;
     CarRepository carRepo;
+    OptimisticRetry optimisticRetry;
+    SingleFlight singleFlight;
 
     @Override
     public ServiceOrder getById(int id) {
@@ -29,53 +47,153 @@ public class ServiceOrderServiceImpl implements MyOrderService<ServiceOrder> {
     }
 
     @Override
-    public ServiceOrder getEntityByFilter(Predicate<ServiceOrder> predicate) {
-        return orderRepo.findByFilter(predicate).findFirst()
+    public ServiceOrder getById(int id, FetchPlan plan) {
+        return orderRepo.findById(id, plan)
                 .orElseThrow(() -> new NotFoundException(NotFoundException.MSG));
     }
 
+    @Override
+    public ServiceOrder getEntityByFilter(Specification<? super ServiceOrder> specification) {
+        try (var found = orderRepo.findByFilter(specification)) {
+            return found.findFirst()
+                    .orElseThrow(() -> new NotFoundException(NotFoundException.MSG));
+        }
+    }
+
     @Override
     public List<ServiceOrder> getAll() {
-        var orders = orderRepo.findAll().toList();
-        if (orders.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
-        return orders;
+        return singleFlight.execute("service_order.getAll", List.of(), () -> {
+            try (var stream = orderRepo.findAll()) {
+                var orders = stream.toList();
+                if (orders.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+                return orders;
+            }
+        }, orders -> orders.stream().map(ServiceOrder::copy).toList());
+    }
+
+    @Override
+    public List<ServiceOrder> getAll(FetchPlan plan) {
+        return singleFlight.execute("service_order.getAll", plan, () -> {
+            try (var stream = orderRepo.findAll(plan)) {
+                var orders = stream.toList();
+                if (orders.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+                return orders;
+            }
+        }, orders -> orders.stream().map(ServiceOrder::copy).toList());
+    }
+
+    @Override
+    public List<ServiceOrder> getEntitiesByFilter(Specification<? super ServiceOrder> specification) {
+        try (var stream = orderRepo.findByFilter(specification)) {
+            return stream.toList();
+        }
+    }
+
+    @Override
+    public Stream<ServiceOrder> streamByFilter(Specification<? super ServiceOrder> specification) {
+        return orderRepo.findByFilter(specification);
+    }
+
+    @Override
+    public Stream<ServiceOrder> streamByFilter(Specification<? super ServiceOrder> specification, FetchPlan plan) {
+        return orderRepo.findByFilter(specification, plan);
     }
 
     @Override
-    public List<ServiceOrder> getEntitiesByFilter(Predicate<ServiceOrder> predicate) {
-        return orderRepo.findByFilter(predicate).toList();
+    public Page<ServiceOrder> getPage(Specification<? super ServiceOrder> specification, PageRequest<? super ServiceOrder> request) {
+        return orderRepo.findPage(specification, request);
     }
 
+    @Override
+    public Page<ServiceOrder> getPage(Specification<? super ServiceOrder> specification, PageRequest<? super ServiceOrder> request, FetchPlan plan) {
+        return orderRepo.findPage(specification, request, plan);
+    }
+
+    @Override
+    public List<ServiceOrder> getEntitiesByFilter(Specification<? super ServiceOrder> specification, FetchPlan plan) {
+        try (var stream = orderRepo.findByFilter(specification, plan)) {
+            return stream.toList();
+        }
+    }
+
+    /**
+     * Смена статуса по свежей версии заказа, при конфликте заказ перечитывается и статус ставится снова
+     */
     @Override
     public void changeStatus(ServiceOrder order, OrderStatus newStatus) {
-        order.setStatus(newStatus);
-        orderRepo.update(order);
+        optimisticRetry.run(ENTITY, () -> {
+            var current = orderRepo.findById(order.getId(), FetchPlan.ORDER)
+                    .orElseThrow(() -> new NotFoundException("Заказ на обслуживание для обновления не найден"));
+            current.setStatus(newStatus);
+            updateVersioned(current);
+            order.setStatus(newStatus);
+            order.setVersion(current.getVersion());
+        });
     }
 
+    /**
+     * Запись на обслуживание одним запросом: автомобиль переводится в FOR_SERVICE и заказ вставляется в одном CTE,
+     * автомобиль, уже стоящий на обслуживании, второй раз не записать
+     */
     @Override
     public ServiceOrder create(ServiceOrder order) {
-        var car = order.getCar();
-        car.setState(CarState.FOR_SALE);
-        order.setStatus(OrderStatus.CANCEL);
-        carRepo.update(car);
-        return orderRepo.create(order)
-                .orElseThrow(() -> new RuntimeException("Не удалось создать заказ на обслуживание!"));
+        var created = orderRepo.createClaimingCar(order, CAR_AVAILABLE, CarState.FOR_SERVICE);
+        if (created.isPresent()) return created.get();
+        if (!carRepo.existsById(order.getCar().getId())) {
+            throw new NotFoundException("Автомобиль не найден");
+        }
+        throw new CarUnavailableException("Автомобиль уже занят другим заказом");
+    }
+
+    /**
+     * Пакетная версия {@link #create} с той же семантикой захвата: все автомобили переводятся в FOR_SERVICE
+     * одним UPDATE ... WHERE state = ANY(?), заказы вставляются многострочными INSERT в той же транзакции.
+     * Если хотя бы один автомобиль уже занят, не создаётся ни один заказ
+     */
+    @Override
+    public List<ServiceOrder> createAll(List<ServiceOrder> orders) {
+        var carIds = orders.stream().map(order -> order.getCar().getId()).toList();
+        if (Set.copyOf(carIds).size() != carIds.size()) {
+            throw new CarUnavailableException("Автомобиль указан в пакете дважды");
+        }
+        var created = orderRepo.createAllClaimingCars(orders, CAR_AVAILABLE, CarState.FOR_SERVICE);
+        if (created.isPresent()) return created.get();
+        if (!carIds.stream().allMatch(carRepo::existsById)) {
+            throw new NotFoundException("Автомобиль не найден");
+        }
+        throw new CarUnavailableException("Автомобиль уже занят другим заказом");
     }
 
     @Override
     public void delete(ServiceOrder order) {
-        var exist = orderRepo.existsById(order.getId());
-        if (!exist) {
+        deleteById(order.getId());
+    }
+
+    @Override
+    public void deleteById(int id) {
+        if (orderRepo.deleteById(id) == 0) {
             throw new NotFoundException("Заказ на обслуживание для удаления не найден");
         }
     }
 
+    /**
+     * Обновление проверяется один раз по версии от клиента, конфликт сразу уходит клиенту.
+     * Без версии изменение не применяется: перечитать версию и повторить значило бы молча затереть чужую запись
+     */
     @Override
     public void update(ServiceOrder order) {
-        var exist = orderRepo.existsById(order.getId());
-        if (!exist) {
-            throw new NotFoundException("Заказ на обслуживание для обновления не найден");
+        if (order.getVersion() == null) {
+            throw new VersionRequiredException("Не указана версия заказа");
+        }
+        updateVersioned(order);
+    }
+
+    private void updateVersioned(ServiceOrder order) {
+        if (orderRepo.update(order) == 0) {
+            if (!orderRepo.existsById(order.getId())) {
+                throw new NotFoundException("Заказ на обслуживание для обновления не найден");
+            }
+            throw optimisticRetry.conflict(ENTITY, order.getId());
         }
-        orderRepo.update(order);
     }
 }
@@ -0,0 +1,107 @@
+package autoservice.adapter.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Объединение одинаковых одновременных вызовов. Первый вызов с данным ключом выполняет работу
+ * в своём потоке, остальные, пришедшие до её завершения, ждут и получают тот же результат
+ * или то же исключение. После завершения ключ освобождается: это не кэш, следующий вызов снова
+ * пойдёт в базу. Изменяемый результат (списки сущностей) выполняется с функцией копирования:
+ * каждый вызывающий, включая первого, получает свою копию, а исходный результат не выдаётся никому
+ */
+@Component
+public class SingleFlight {
+
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> leaders = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> coalesced = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlight(@Value("${single-flight.enabled:true}") boolean enabled, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Выполнение или присоединение к уже идущему вызову
+     *
+     * @param method имя метода: часть ключа и тег метрик
+     * @param key    аргументы, определяющие результат; сравниваются через equals
+     * @param call   работа
+     * @return результат работы
+     */
+    public <T> T execute(String method, Object key, Supplier<T> call) {
+        return execute(method, key, call, UnaryOperator.identity());
+    }
+
+    /**
+     * Выполнение или присоединение к уже идущему вызову с изменяемым результатом
+     *
+     * @param method имя метода: часть ключа и тег метрик
+     * @param key    аргументы, определяющие результат; сравниваются через equals
+     * @param call   работа
+     * @param copy   независимая копия результата для каждого вызывающего
+     * @return результат работы, не разделяемый с другими вызывающими
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String method, Object key, Supplier<T> call, UnaryOperator<T> copy) {
+        if (!enabled) return call.get();
+        var flightKey = List.of(method, key);
+        var flight = new CompletableFuture<Object>();
+        var existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            counter(coalesced, method, "coalesced").increment();
+            return copy.apply((T) await(existing));
+        }
+        counter(leaders, method, "leader").increment();
+        try {
+            var result = call.get();
+            flight.complete(result);
+            return copy.apply(result);
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) return runtime;
+        if (cause instanceof Error error) throw error;
+        return new IllegalStateException(cause);
+    }
+
+    private Counter counter(ConcurrentHashMap<String, Counter> counters, String method, String role) {
+        return counters.computeIfAbsent(method, m -> Counter.builder("singleflight.calls")
+                .description("Вызовы, выполненные сами (leader) и присоединённые к идущему (coalesced)")
+                .tag("method", m)
+                .tag("role", role)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,115 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.repository.TokenRevocationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отзыв JWT для режима аутентификации без обращения к базе. Токен несёт версию пользователя
+ * на момент выдачи, отзыв задаёт минимальную действующую версию. Изменение или удаление
+ * пользователя, в том числе смена роли, делает прежние токены недействительными.
+ * Набор хранится в памяти и периодически перечитывается из token_revocation, чтобы отзывы
+ * с других экземпляров приложения доходили не позже интервала синхронизации
+ */
+@Service
+public class TokenRevocationService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final TokenRevocationRepository repository;
+    private final Duration tokenLifetime;
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<Integer, Integer> minVersions = Map.of();
+    private volatile boolean ready;
+
+    public TokenRevocationService(TokenRevocationRepository repository,
+                                  @Value("${token.stateless:false}") boolean stateless,
+                                  @Value("${token.revocation-sync-ms:5000}") long syncMillis,
+                                  @Value("${token.expirationDays:365}") int expirationDays,
+                                  MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.tokenLifetime = Duration.ofDays(expirationDays);
+        Gauge.builder("auth.token.revocations", this, service -> service.minVersions.size())
+                .description("Пользователи с отозванными токенами")
+                .register(meterRegistry);
+        if (stateless) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "token-revocation-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::sync, 0, syncMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return true, если режим без базы включён (token.stateless) и набор отзывов уже загружен
+     * из базы, то есть ему можно доверять
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Проверка токена по набору в памяти, без обращения к базе
+     *
+     * @param userId  id пользователя из токена
+     * @param version версия пользователя из токена
+     * @return true, если токен отозван
+     */
+    public boolean isRevoked(int userId, int version) {
+        var minVersion = minVersions.get(userId);
+        return minVersion != null && version < minVersion;
+    }
+
+    /**
+     * Отзыв токенов пользователя, выданных до указанной версии. На этом экземпляре действует сразу,
+     * на остальных после очередной синхронизации
+     *
+     * @param userId     id пользователя
+     * @param minVersion минимальная версия пользователя в действующем токене
+     */
+    public void revoke(int userId, int minVersion) {
+        repository.revoke(userId, minVersion);
+        publish(Map.of(userId, minVersion));
+    }
+
+    void sync() {
+        try {
+            repository.deleteOlderThan(Instant.now().minus(tokenLifetime));
+            publish(repository.findMinVersions());
+            ready = true;
+        } catch (RuntimeException e) {
+            logger.warn("Token revocation sync failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Слияние с текущим набором по максимуму: версия пользователя только растёт, поэтому
+     * синхронизация, прочитавшая базу до локального отзыва, его не потеряет
+     */
+    private synchronized void publish(Map<Integer, Integer> revocations) {
+        var updated = new HashMap<>(minVersions);
+        revocations.forEach((userId, minVersion) -> updated.merge(userId, minVersion, Math::max));
+        minVersions = updated;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
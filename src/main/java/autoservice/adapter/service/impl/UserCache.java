@@ -0,0 +1,75 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.domen.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Пользователи по username для аутентификации запросов. Сброс идёт по id, поэтому рядом с кэшем
+ * хранится индекс id -> username: запись находится по ключу, без прохода по всему кэшу.
+ * <p>
+ * Загрузка, прочитавшая строку до изменения, не должна вернуть её в кэш после сброса.
+ * Каждый сброс увеличивает поколение; загрузка, во время которой поколение сменилось,
+ * свой результат из кэша убирает
+ */
+public class UserCache {
+
+    private final Cache<String, User> users;
+    private final Map<Integer, String> usernames = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param builder       настройки вытеснения и срока жизни
+     * @param meterRegistry реестр метрик, кэш виден в cache.* с именем users
+     */
+    public UserCache(Caffeine<Object, Object> builder, MeterRegistry meterRegistry) {
+        Cache<String, User> cache = builder
+                .<String, User>evictionListener((username, user, cause) -> {
+                    if (user != null) usernames.remove(user.getId(), username);
+                })
+                .build();
+        this.users = CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    /**
+     * @param username имя пользователя
+     * @param loader   чтение из базы, null - пользователя нет, такой результат не кэшируется
+     * @return пользователь или null
+     */
+    public User get(String username, Function<String, User> loader) {
+        var cached = users.getIfPresent(username);
+        if (cached != null) return cached;
+        var loadedAt = generation.get();
+        var user = loader.apply(username);
+        if (user == null) return null;
+        usernames.put(user.getId(), username);
+        users.put(username, user);
+        // Сброс мог пройти между чтением строки и записью в кэш: тогда строка могла быть старой
+        if (generation.get() != loadedAt) users.invalidate(username);
+        return user;
+    }
+
+    /**
+     * Сброс пользователя, в том числе под прежним username, если он сменился
+     *
+     * @param id id пользователя
+     */
+    public void invalidate(int id) {
+        generation.incrementAndGet();
+        var username = usernames.remove(id);
+        if (username != null) users.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        users.invalidateAll();
+        usernames.clear();
+    }
+}
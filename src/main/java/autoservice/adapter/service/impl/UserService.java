@@ -1,9 +1,14 @@
 package autoservice.adapter.service.impl;
 
+import autoservice.adapter.repository.DuplicateUserException;
 import autoservice.adapter.repository.UserRepository;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.Specification;
 import autoservice.adapter.service.EntityService;
 import autoservice.adapter.service.NotFoundException;
 import autoservice.adapter.service.UserConflictException;
+import autoservice.adapter.service.VersionRequiredException;
 import autoservice.domen.model.User;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -14,14 +19,19 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class UserService implements EntityService<User> {
 
+    private static final String ENTITY = "user";
+
     UserRepository repository;
+    OptimisticRetry optimisticRetry;
+    UserCache userCache;
+    TokenRevocationService tokenRevocationService;
 
     @Override
     public List<User> getByString(List<User> users, String searchString) {
@@ -40,67 +50,143 @@ public class UserService implements EntityService<User> {
     }
 
     @Override
-    public User getEntityByFilter(Predicate<User> predicate) {
-        return repository.findByFilter(predicate).findFirst().orElseThrow(
-                () -> new NotFoundException(NotFoundException.MSG));
+    public User getEntityByFilter(Specification<? super User> specification) {
+        try (var found = repository.findByFilter(specification)) {
+            return found.findFirst()
+                    .orElseThrow(() -> new NotFoundException(NotFoundException.MSG));
+        }
     }
 
     @Override
     public List<User> getAll() {
-        var users = repository.findAll().toList();
-        if (users.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
-        return users;
+        try (var stream = repository.findAll()) {
+            var users = stream.toList();
+            if (users.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+            return users;
+        }
     }
 
     @Override
-    public List<User> getEntitiesByFilter(Predicate<User> predicate) {
-        var users = repository.findByFilter(predicate).toList();
-        if (users.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
-        return users;
+    public List<User> getEntitiesByFilter(Specification<? super User> specification) {
+        try (var stream = repository.findByFilter(specification)) {
+            var users = stream.toList();
+            if (users.isEmpty()) throw new NotFoundException(NotFoundException.MSG);
+            return users;
+        }
+    }
+
+    @Override
+    public Stream<User> streamByFilter(Specification<? super User> specification) {
+        return repository.findByFilter(specification);
+    }
+
+    @Override
+    public Page<User> getPage(Specification<? super User> specification, PageRequest<? super User> request) {
+        return repository.findPage(specification, request);
     }
 
     @Override
     public void delete(User user) {
-        var exist = repository.existsById(user.getId());
-        if (!exist) {
+        deleteById(user.getId());
+    }
+
+    @Override
+    public void deleteById(int id) {
+        var deleted = repository.deleteById(id);
+        evict(id);
+        if (deleted == 0) {
             throw new NotFoundException("Пользователь для удаления не найден");
         }
-        repository.delete(user);
+        tokenRevocationService.revoke(id, Integer.MAX_VALUE);
     }
 
+    /**
+     * Обновление проверяется один раз по версии от клиента, конфликт сразу уходит клиенту.
+     * Без версии изменение не применяется: перечитать версию и повторить значило бы молча затереть чужую запись
+     *
+     * @throws UserConflictException если новые имя пользователя или email уже заняты
+     */
     @Override
     public void update(User user) {
-        var exist = repository.existsById(user.getId());
-        if (!exist) {
-            throw new NotFoundException("Пользователь для обновления не найден");
+        if (user.getVersion() == null) {
+            throw new VersionRequiredException("Не указана версия пользователя");
+        }
+        updateVersioned(user);
+    }
+
+    /**
+     * После обновления токены с прежней версией пользователя отзываются: в них могла остаться старая роль
+     */
+    private void updateVersioned(User user) {
+        int updated;
+        try {
+            updated = repository.update(user);
+        } catch (DuplicateUserException e) {
+            throw conflict(e);
+        } finally {
+            evict(user.getId());
+        }
+        if (updated == 0) {
+            if (!repository.existsById(user.getId())) {
+                throw new NotFoundException("Пользователь для обновления не найден");
+            }
+            throw optimisticRetry.conflict(ENTITY, user.getId());
         }
-        repository.update(user);
+        tokenRevocationService.revoke(user.getId(), user.getVersion());
     }
 
     /**
      * Создание пользователя
      *
      * @return созданный пользователь
+     * @throws UserConflictException если имя пользователя или email уже заняты
      */
     @Override
     public User create(User user) {
-        if (repository.existsByUsername(user.getUsername())) {
-            throw new UserConflictException("Пользователь с таким именем уже существует");
+        try {
+            return repository.create(user)
+                    .orElseThrow(() -> new UserConflictException("Пользователь с таким именем или email уже существует"));
+        } catch (DuplicateUserException e) {
+            throw conflict(e);
         }
-        if (repository.existsByEmail(user.getEmail())) {
-            throw new UserConflictException("Пользователь с таким email уже существует");
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        try {
+            return repository.createAll(users);
+        } catch (DuplicateUserException e) {
+            throw conflict(e);
         }
-        return repository.create(user).orElseThrow(() -> new RuntimeException("Не удалось создать пользователя!"));
     }
 
+    private static UserConflictException conflict(DuplicateUserException e) {
+        var message = "email".equals(e.getField())
+                ? "Пользователь с таким email уже существует"
+                : "Пользователь с таким именем уже существует";
+        return new UserConflictException(message, e);
+    }
+
+
     /**
-     * Получение пользователя по имени пользователя
+     * Получение пользователя по имени пользователя. Вызывается фильтром JWT на каждый запрос,
+     * поэтому пользователь берётся из кэша и читается из базы только при промахе
      *
      * @return пользователь
      */
     public User getByUsername(String username) {
-        return repository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
+        var user = userCache.get(username, key -> repository.findByUsername(key).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("Пользователь не найден");
+        }
+        return user;
+    }
+
+    /**
+     * Удаление пользователя из кэша по id, в том числе под прежним username
+     */
+    private void evict(int id) {
+        userCache.invalidate(id);
     }
 
     /**
@@ -0,0 +1,148 @@
+package autoservice.config;
+
+import autoservice.adapter.repository.impl.QueryResultCache;
+import autoservice.adapter.service.impl.UserCache;
+import autoservice.config.invalidation.CacheInvalidationHandler;
+import autoservice.config.invalidation.CacheInvalidationListener;
+import autoservice.domen.model.Car;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Configuration
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CacheConfig {
+
+    @Value("${cache.users.maximum-size:10000}")
+    long usersMaximumSize;
+
+    @Value("${cache.users.ttl-seconds:300}")
+    long usersTtlSeconds;
+
+    @Value("${cache.cars.maximum-size:50000}")
+    long carsMaximumSize;
+
+    @Value("${cache.cars.ttl-seconds:600}")
+    long carsTtlSeconds;
+
+    @Value("${cache.cars.negative-ttl-seconds:30}")
+    long carsNegativeTtlSeconds;
+
+    @Value("${spring.datasource.url}")
+    String url;
+
+    @Value("${spring.datasource.username}")
+    String username;
+
+    @Value("${spring.datasource.password}")
+    String password;
+
+    @Value("${cache.invalidation.poll-ms:500}")
+    int invalidationPollMillis;
+
+    @Value("${cache.invalidation.reconnect-ms:1000}")
+    long invalidationReconnectMillis;
+
+    /**
+     * Пользователи по username для аутентификации запросов. Вытеснение W-TinyLFU по размеру
+     * и TTL с момента загрузки, попадания, промахи и вытеснения видны в метриках cache.*
+     *
+     * @param meterRegistry реестр метрик
+     * @return кэш пользователей
+     */
+    @Bean
+    public UserCache userCache(MeterRegistry meterRegistry) {
+        return new UserCache(Caffeine.newBuilder()
+                .maximumSize(usersMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(usersTtlSeconds))
+                .recordStats(), meterRegistry);
+    }
+
+    /**
+     * Автомобили по id. Пустое значение - автомобиля нет: такие записи живут коротко,
+     * чтобы перебор случайных id не доходил до базы, но новый автомобиль быстро становился виден
+     *
+     * @param meterRegistry реестр метрик
+     * @return кэш автомобилей
+     */
+    @Bean
+    public Cache<Integer, Optional<Car>> carCache(MeterRegistry meterRegistry) {
+        Cache<Integer, Optional<Car>> cache = Caffeine.newBuilder()
+                .maximumSize(carsMaximumSize)
+                .expireAfter(carExpiry(Duration.ofSeconds(carsTtlSeconds).toNanos(),
+                        Duration.ofSeconds(carsNegativeTtlSeconds).toNanos()))
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "cars");
+    }
+
+    /**
+     * Сброс кэшей по изменениям, сделанным другими экземплярами приложения.
+     * Изменение любой строки таблицы сдвигает её версию в кэше результатов запросов
+     *
+     * @param handlers      кэши по таблицам
+     * @param queryCache    кэш результатов запросов
+     * @param meterRegistry реестр метрик
+     * @return слушатель уведомлений
+     */
+    @Bean(destroyMethod = "close")
+    public CacheInvalidationListener cacheInvalidationListener(List<CacheInvalidationHandler> handlers,
+                                                               QueryResultCache queryCache,
+                                                               MeterRegistry meterRegistry) {
+        var all = new ArrayList<>(handlers);
+        for (var table : List.of("user", "car", "sales_order", "service_order")) {
+            all.add(CacheInvalidationHandler.of(table,
+                    invalidation -> queryCache.bump(table), () -> queryCache.bump(table)));
+        }
+        return new CacheInvalidationListener(url, username, password, invalidationPollMillis,
+                invalidationReconnectMillis, all, meterRegistry);
+    }
+
+    @Bean
+    public CacheInvalidationHandler userCacheInvalidation(UserCache userCache) {
+        return CacheInvalidationHandler.of("user", invalidation -> userCache.invalidate(invalidation.id()),
+                userCache::invalidateAll);
+    }
+
+    @Bean
+    public CacheInvalidationHandler carCacheInvalidation(Cache<Integer, Optional<Car>> carCache) {
+        return CacheInvalidationHandler.of("car",
+                invalidation -> carCache.asMap().computeIfPresent(invalidation.id(), (id, car) ->
+                        car.isPresent() && !invalidation.isNewerThan(car.get().getVersion()) ? car : null),
+                carCache::invalidateAll);
+    }
+
+    /**
+     * Срок считается от каждой записи: найденный автомобиль живёт ttl, отсутствующий - negativeTtl
+     */
+    private static Expiry<Integer, Optional<Car>> carExpiry(long ttlNanos, long negativeTtlNanos) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Integer id, Optional<Car> car, long currentTime) {
+                return car.isPresent() ? ttlNanos : negativeTtlNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Integer id, Optional<Car> car, long currentTime, long currentDuration) {
+                return expireAfterCreate(id, car, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(Integer id, Optional<Car> car, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
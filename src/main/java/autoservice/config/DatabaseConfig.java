@@ -1,14 +1,22 @@
 package autoservice.config;
 
+import autoservice.config.routing.ReplicaHealthMonitor;
+import autoservice.config.routing.ReplicaRoutingDataSource;
+import autoservice.config.routing.WriteTracker;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 
 @Configuration
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -26,19 +34,95 @@ public class DatabaseConfig {
     @Value("${spring.datasource.password}")
     String password;
 
+    @Value("${spring.datasource.hikari.pool-name:car-service-pool}")
+    String poolName;
+
+    @Value("${spring.datasource.hikari.minimum-idle:2}")
+    int minimumIdle;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    int maximumPoolSize;
+
+    @Value("${spring.datasource.hikari.idle-timeout:600000}")
+    long idleTimeout;
+
+    @Value("${spring.datasource.hikari.max-lifetime:1800000}")
+    long maxLifetime;
+
+    @Value("${spring.datasource.hikari.connection-timeout:30000}")
+    long connectionTimeout;
+
+    @Value("${spring.datasource.hikari.validation-timeout:5000}")
+    long validationTimeout;
+
+    @Value("${spring.datasource.hikari.keepalive-time:0}")
+    long keepaliveTime;
+
+    /**
+     * Адреса реплик через запятую, без реплик всё идёт на primary
+     */
+    @Value("${spring.datasource.replicas.urls:}")
+    String replicaUrls;
+
+    @Value("${spring.datasource.replicas.max-lag-ms:1000}")
+    long replicaMaxLag;
+
+    @Value("${spring.datasource.replicas.health-check-interval-ms:2000}")
+    long replicaHealthCheckInterval;
+
+    @Value("${spring.datasource.replicas.connection-timeout:1000}")
+    long replicaConnectionTimeout;
 
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(driver);
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
-        return dataSource;
+    public WriteTracker writeTracker() {
+        return new WriteTracker(replicaMaxLag + 2 * replicaHealthCheckInterval);
+    }
+
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(MeterRegistry meterRegistry, WriteTracker writeTracker) {
+        var primary = hikari(poolName, url, false, meterRegistry);
+        var urls = Arrays.stream(replicaUrls.split(",")).map(String::strip).filter(u -> !u.isEmpty()).toList();
+        if (urls.isEmpty()) return primary;
+
+        var replicas = new LinkedHashMap<String, DataSource>();
+        for (var i = 0; i < urls.size(); i++) {
+            var name = poolName + "-replica-" + (i + 1);
+            replicas.put(name, hikari(name, urls.get(i), true, meterRegistry));
+        }
+        var monitor = new ReplicaHealthMonitor(primary, replicas, replicaMaxLag, replicaHealthCheckInterval,
+                writeTracker, meterRegistry);
+        return new ReplicaRoutingDataSource(primary, new ArrayList<>(replicas.values()), monitor,
+                writeTracker, meterRegistry);
+    }
+
+    /**
+     * Пул соединений. Пул реплики не валит старт приложения, если реплика недоступна,
+     * и быстрее сдаётся при получении соединения, чтобы чтение успело уйти на primary
+     */
+    private HikariDataSource hikari(String name, String jdbcUrl, boolean replica, MeterRegistry meterRegistry) {
+        var config = new HikariConfig();
+        config.setPoolName(name);
+        config.setDriverClassName(driver);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMinimumIdle(minimumIdle);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setIdleTimeout(idleTimeout);
+        config.setMaxLifetime(maxLifetime);
+        config.setConnectionTimeout(replica ? replicaConnectionTimeout : connectionTimeout);
+        config.setValidationTimeout(replica ? Math.min(validationTimeout, replicaConnectionTimeout) : validationTimeout);
+        config.setKeepaliveTime(keepaliveTime);
+        config.setMetricRegistry(meterRegistry);
+        if (replica) {
+            config.setReadOnly(true);
+            config.setInitializationFailTimeout(-1);
+        }
+        return new HikariDataSource(config);
     }
 
     @Bean
     public JdbcTemplate jdbcTemplate(DataSource dataSource) {
         return new JdbcTemplate(dataSource);
     }
-}
\ No newline at end of file
+}
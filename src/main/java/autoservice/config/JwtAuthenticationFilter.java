@@ -2,6 +2,8 @@ package autoservice.config;
 
 import autoservice.adapter.service.impl.UserService;
 import autoservice.adapter.service.impl.JwtService;
+import autoservice.adapter.service.impl.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,6 +31,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     JwtService jwtService;
     UserService userService;
+    TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(
@@ -44,14 +47,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         var jwt = authHeader.substring(BEARER_PREFIX.length());
-        var username = jwtService.extractUserName(jwt);
-
-        if (StringUtils.isNotEmpty(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userService
-                    .userDetailsService()
-                    .loadUserByUsername(username);
-
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            var claims = jwtService.validate(jwt);
+            var userDetails = tokenRevocationService.isReady() ? fromClaims(claims) : fromDatabase(claims);
+            if (userDetails != null) {
                 var context = SecurityContextHolder.createEmptyContext();
 
                 var authToken = new UsernamePasswordAuthenticationToken(
@@ -66,4 +65,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Режим без базы: пользователь собирается из подписанных данных токена,
+     * отозванные токены и токены со старой ролью отсекаются набором отзывов в памяти
+     */
+    private UserDetails fromClaims(Claims claims) {
+        var user = jwtService.extractPrincipal(claims);
+        if (user.getId() == null) return fromDatabase(claims);
+        return tokenRevocationService.isRevoked(user.getId(), user.getVersion()) ? null : user;
+    }
+
+    private UserDetails fromDatabase(Claims claims) {
+        var username = claims.getSubject();
+        if (StringUtils.isEmpty(username)) return null;
+
+        UserDetails userDetails = userService
+                .userDetailsService()
+                .loadUserByUsername(username);
+        return jwtService.isTokenValid(claims, userDetails) ? userDetails : null;
+    }
 }
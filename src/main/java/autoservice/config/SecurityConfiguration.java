@@ -1,5 +1,7 @@
 package autoservice.config;
 
+import autoservice.adapter.service.impl.BoundedPasswordEncoder;
+import autoservice.adapter.service.impl.PasswordHashingExecutor;
 import autoservice.adapter.service.impl.UserService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -34,6 +36,7 @@ public class SecurityConfiguration {
 
     JwtAuthenticationFilter jwtAuthenticationFilter;
     UserService userService;
+    PasswordHashingExecutor passwordHashingExecutor;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -49,7 +52,7 @@ public class SecurityConfiguration {
                 .authorizeHttpRequests(request -> request
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/swagger-resources/*", "/v3/api-docs/**").permitAll()
-                        .requestMatchers("/endpoint", "/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/endpoint", "/admin/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(manager -> manager.sessionCreationPolicy(STATELESS))
                 .authenticationProvider(authenticationProvider())
@@ -57,9 +60,12 @@ public class SecurityConfiguration {
         return http.build();
     }
 
+    /**
+     * BCrypt в отдельном ограниченном пуле, а не в потоках запросов
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingExecutor);
     }
 
     @Bean
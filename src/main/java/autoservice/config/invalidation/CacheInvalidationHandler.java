@@ -0,0 +1,46 @@
+package autoservice.config.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Кэш одной таблицы, который сбрасывается по уведомлениям {@link CacheInvalidationListener}
+ */
+public interface CacheInvalidationHandler {
+
+    /**
+     * @return таблица без схемы, изменения которой сбрасывают кэш
+     */
+    String table();
+
+    /**
+     * Сброс записей, затронутых изменением строки
+     *
+     * @param invalidation изменение строки
+     */
+    void invalidate(Invalidation invalidation);
+
+    /**
+     * Полный сброс, когда уведомления могли быть потеряны (переподключение)
+     * или таблица изменена массово
+     */
+    void invalidateAll();
+
+    static CacheInvalidationHandler of(String table, Consumer<Invalidation> invalidate, Runnable invalidateAll) {
+        return new CacheInvalidationHandler() {
+            @Override
+            public String table() {
+                return table;
+            }
+
+            @Override
+            public void invalidate(Invalidation invalidation) {
+                invalidate.accept(invalidation);
+            }
+
+            @Override
+            public void invalidateAll() {
+                invalidateAll.run();
+            }
+        };
+    }
+}
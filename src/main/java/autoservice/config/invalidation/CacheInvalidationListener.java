@@ -0,0 +1,158 @@
+package autoservice.config.invalidation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Согласование кэшей между экземплярами приложения. Триггеры таблиц отправляют
+ * {@link Invalidation} через pg_notify, каждый экземпляр держит отдельное соединение с LISTEN
+ * и сбрасывает затронутые записи своих кэшей. Уведомления, пришедшие пока соединения не было,
+ * теряются, поэтому после каждого подключения кэши сбрасываются целиком.
+ * Соединение открывается к primary мимо пула: оно занято всё время работы приложения
+ */
+public class CacheInvalidationListener implements AutoCloseable {
+
+    /**
+     * Канал, в который пишет функция car_service.notify_cache_invalidation()
+     */
+    public static final String CHANNEL = "cache_invalidation";
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int pollMillis;
+    private final long reconnectMillis;
+    private final Map<String, List<CacheInvalidationHandler>> handlers;
+    private final MeterRegistry meterRegistry;
+    private final Counter reconnects;
+    private final Thread thread;
+    private volatile Connection connection;
+    private volatile boolean running = true;
+
+    public CacheInvalidationListener(String url, String username, String password, int pollMillis,
+                                     long reconnectMillis, Collection<CacheInvalidationHandler> handlers,
+                                     MeterRegistry meterRegistry) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.pollMillis = pollMillis;
+        this.reconnectMillis = reconnectMillis;
+        this.handlers = handlers.stream().collect(Collectors.groupingBy(CacheInvalidationHandler::table));
+        this.meterRegistry = meterRegistry;
+        this.reconnects = Counter.builder("cache.invalidation.reconnects")
+                .description("Подключения LISTEN с полным сбросом кэшей")
+                .register(meterRegistry);
+        Gauge.builder("cache.invalidation.connected", this, listener -> listener.connection != null ? 1 : 0)
+                .description("Соединение LISTEN открыто")
+                .register(meterRegistry);
+        this.thread = new Thread(this::run, "cache-invalidation-listener");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        while (running) {
+            try (var listening = DriverManager.getConnection(url, username, password)) {
+                try (var statement = listening.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                connection = listening;
+                reconnects.increment();
+                flushAll();
+                poll(listening.unwrap(PGConnection.class));
+            } catch (SQLException e) {
+                if (running) logger.warn("Cache invalidation connection lost: {}", e.getMessage());
+            } finally {
+                connection = null;
+            }
+            if (running) flushAll();
+            sleep(reconnectMillis);
+        }
+    }
+
+    private void poll(PGConnection listening) throws SQLException {
+        while (running) {
+            var notifications = listening.getNotifications(pollMillis);
+            if (notifications == null) continue;
+            for (var notification : notifications) {
+                dispatch(notification.getParameter());
+            }
+        }
+    }
+
+    void dispatch(String payload) {
+        Invalidation invalidation;
+        try {
+            invalidation = Invalidation.parse(payload);
+        } catch (IllegalArgumentException e) {
+            logger.warn(e.getMessage());
+            return;
+        }
+        var tableHandlers = handlers.get(invalidation.table());
+        if (tableHandlers == null) return;
+        Counter.builder("cache.invalidation.received")
+                .description("Полученные уведомления об изменении строк")
+                .tag("table", invalidation.table())
+                .register(meterRegistry)
+                .increment();
+        for (var handler : tableHandlers) {
+            if (invalidation.flush()) {
+                handler.invalidateAll();
+                continue;
+            }
+            try {
+                handler.invalidate(invalidation);
+            } catch (RuntimeException e) {
+                // Ошибка в одном кэше не должна оставить остальные устаревшими
+                logger.warn("Cache invalidation for {} failed, flushing: {}", invalidation.table(), e.getMessage());
+                handler.invalidateAll();
+            }
+        }
+    }
+
+    private void flushAll() {
+        handlers.values().stream()
+                .flatMap(List::stream)
+                .forEach(CacheInvalidationHandler::invalidateAll);
+    }
+
+    /**
+     * @return true, если соединение LISTEN открыто
+     */
+    public boolean isConnected() {
+        return connection != null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(pollMillis + 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
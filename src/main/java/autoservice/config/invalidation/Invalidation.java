@@ -0,0 +1,43 @@
+package autoservice.config.invalidation;
+
+/**
+ * Сообщение об изменении строки, которое триггер отправляет через pg_notify.
+ * Формат payload: {@code таблица:операция:id:версия}, например {@code car:U:42:7}.
+ * Массовое изменение приходит одним сообщением {@code таблица:*} и сбрасывает кэш таблицы целиком
+ *
+ * @param table   таблица без схемы
+ * @param flush   изменено много строк, кэш таблицы сбрасывается полностью
+ * @param deleted строка удалена
+ * @param id      id строки
+ * @param version версия строки после изменения, для удаления - последняя версия
+ */
+public record Invalidation(String table, boolean flush, boolean deleted, int id, int version) {
+
+    /**
+     * Разбор payload уведомления
+     *
+     * @param payload строка из pg_notify
+     * @return сообщение
+     * @throws IllegalArgumentException если формат не тот
+     */
+    public static Invalidation parse(String payload) {
+        var parts = payload.split(":");
+        if (parts.length == 2 && "*".equals(parts[1])) return new Invalidation(parts[0], true, false, 0, 0);
+        if (parts.length != 4) throw new IllegalArgumentException("Bad invalidation payload: " + payload);
+        try {
+            return new Invalidation(parts[0], false, "D".equals(parts[1]),
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad invalidation payload: " + payload, e);
+        }
+    }
+
+    /**
+     * @param cachedVersion версия закэшированной записи, null - неизвестна
+     * @return true, если закэшированная запись старее изменения и её нужно выбросить.
+     * Узел, сделавший запись, уже держит новую версию и свой кэш не сбрасывает
+     */
+    public boolean isNewerThan(Integer cachedVersion) {
+        return flush || deleted || cachedVersion == null || cachedVersion < version;
+    }
+}
@@ -0,0 +1,44 @@
+package autoservice.config.routing;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Component;
+
+/**
+ * Разметка вызовов репозиториев для {@link ReplicaRoutingDataSource}: find*, exists* и выгрузка
+ * выполняются как чтение, остальные методы как запись, позиция WAL после которой запоминается для сессии.
+ * Позиция читается один раз после внешнего вызова: вложенные записи (кэширующая обёртка, захват автомобиля
+ * внутри создания заказа) отдельного запроса к primary не делают
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReadOnlyRoutingAspect {
+
+    WriteTracker writeTracker;
+
+    @Pointcut("@within(org.springframework.stereotype.Repository)")
+    public void repositoryMethods() {}
+
+    @Around("repositoryMethods()")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        var readOnly = isReadOnly(joinPoint.getSignature().getName());
+        var entered = RoutingContext.enter(readOnly);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RoutingContext.exit(entered);
+            if (entered && !readOnly) writeTracker.recordWrite(RoutingContext.sessionKey());
+        }
+    }
+
+    private static boolean isReadOnly(String method) {
+        return method.startsWith("find") || method.startsWith("exists") || method.equals("copyCsv");
+    }
+}
@@ -0,0 +1,164 @@
+package autoservice.config.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновая проверка реплик: доступность и отставание от primary. Реплика, которая не отвечает
+ * или отстаёт больше допустимого, не получает чтений до следующей успешной проверки
+ */
+public class ReplicaHealthMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    /**
+     * Проигранная позиция WAL реплики и время с последней проигранной транзакции в мс
+     */
+    private static final String REPLICA_QUERY = """
+            SELECT COALESCE(pg_last_wal_replay_lsn() - '0/0'::pg_lsn, 0),
+                   COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)""";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final WriteTracker writeTracker;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+
+    public ReplicaHealthMonitor(DataSource primary, Map<String, DataSource> replicas, long maxLagMillis,
+                                long intervalMillis, WriteTracker writeTracker, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .toList();
+        this.maxLagMillis = maxLagMillis;
+        this.writeTracker = writeTracker;
+        for (var replica : this.replicas) {
+            Gauge.builder("db.replica.lag", replica, r -> r.lagMillis)
+                    .description("Отставание реплики от primary")
+                    .baseUnit("milliseconds")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Реплика доступна и принимает чтения")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "replica-health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выбор реплики для чтения по кругу среди доступных. Если сессия недавно писала,
+     * подходит только реплика, проигравшая WAL до позиции этой записи
+     *
+     * @param lastWriteLsn позиция WAL primary после последней записи сессии, 0 если записи не было
+     * @return реплика или null, если читать надо с primary
+     */
+    Replica pick(long lastWriteLsn) {
+        var size = replicas.size();
+        var start = Math.floorMod(next.getAndIncrement(), size);
+        for (var i = 0; i < size; i++) {
+            var replica = replicas.get((start + i) % size);
+            if (replica.isReadable(maxLagMillis, lastWriteLsn)) return replica;
+        }
+        return null;
+    }
+
+    /**
+     * Снятие реплики с чтений после ошибки соединения, вернётся после успешной проверки
+     */
+    void markDown(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            logger.warn("Replica {} is down, reads go to primary: {}", replica.name, e.getMessage());
+        }
+        replica.healthy = false;
+    }
+
+    /**
+     * Позиция primary читается до реплик: реплика, проигравшая WAL до неё, на момент проверки
+     * не отставала, даже если последняя транзакция была давно
+     */
+    void checkAll() {
+        var primaryLsn = primaryLsn();
+        for (var replica : replicas) {
+            check(replica, primaryLsn);
+        }
+        writeTracker.purge();
+    }
+
+    /**
+     * @return текущая позиция WAL primary или Long.MAX_VALUE, если primary не ответил
+     */
+    private long primaryLsn() {
+        try (var connection = primary.getConnection();
+             var statement = connection.createStatement();
+             var rs = statement.executeQuery(WriteTracker.CURRENT_LSN_QUERY)) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            logger.warn("Cannot read primary WAL position: {}", e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void check(Replica replica, long primaryLsn) {
+        try (var connection = replica.dataSource.getConnection();
+             var statement = connection.createStatement();
+             var rs = statement.executeQuery(REPLICA_QUERY)) {
+            rs.next();
+            replica.replayLsn = rs.getLong(1);
+            replica.lagMillis = replica.replayLsn >= primaryLsn ? 0 : rs.getLong(2);
+            if (!replica.healthy) {
+                logger.info("Replica {} is up, lag {} ms", replica.name, replica.lagMillis);
+            }
+            replica.healthy = true;
+        } catch (SQLException e) {
+            markDown(replica, e);
+        } catch (RuntimeException e) {
+            logger.error("Replica {} health check failed", replica.name, e);
+            replica.healthy = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    static final class Replica {
+
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy;
+        volatile long lagMillis;
+        volatile long replayLsn;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * На момент проверки реплика уже проиграла WAL до позиции последней записи сессии
+         */
+        private boolean isReadable(long maxLagMillis, long lastWriteLsn) {
+            return healthy && lagMillis <= maxLagMillis && replayLsn >= lastWriteLsn;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package autoservice.config.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource с разделением чтения и записи. Соединение для чтения берётся с реплики,
+ * выбранной {@link ReplicaHealthMonitor}, всё остальное и чтения без подходящей реплики идут на primary.
+ * Если реплика не отдала соединение, запрос повторяется на primary
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReplicaHealthMonitor monitor;
+    private final WriteTracker writeTracker;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaHealthMonitor monitor,
+                                    WriteTracker writeTracker, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.monitor = monitor;
+        this.writeTracker = writeTracker;
+        writeTracker.trackLsnOf(primary);
+        this.replicaReads = Counter.builder("db.routing.reads")
+                .description("Чтения по месту выполнения")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("db.routing.reads")
+                .description("Чтения по месту выполнения")
+                .tag("target", "primary")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!RoutingContext.isReadOnly()) return primary.getConnection();
+
+        var replica = monitor.pick(writeTracker.lastWriteLsn(RoutingContext.sessionKey()));
+        if (replica != null) {
+            try {
+                var connection = replica.dataSource.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                monitor.markDown(replica, e);
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Соединение с явными учётными данными всегда берётся с primary: пулы реплик настроены на свои
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public void close() throws Exception {
+        monitor.close();
+        for (var dataSource : replicas) {
+            if (dataSource instanceof AutoCloseable closeable) closeable.close();
+        }
+        if (primary instanceof AutoCloseable closeable) closeable.close();
+    }
+}
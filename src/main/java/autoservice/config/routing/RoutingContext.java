@@ -0,0 +1,76 @@
+package autoservice.config.routing;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Supplier;
+
+/**
+ * Признак текущего обращения к базе: только чтение или запись. Выставляется аспектом
+ * вокруг методов репозиториев и читается {@link ReplicaRoutingDataSource} при получении соединения
+ */
+public final class RoutingContext {
+
+    static final String ANONYMOUS = "anonymous";
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static boolean isReadOnly() {
+        return Boolean.TRUE.equals(READ_ONLY.get());
+    }
+
+    /**
+     * Вход в вызов репозитория. Вложенный вызов не меняет режим внешнего:
+     * чтение внутри записи уходит на primary вместе с ней
+     *
+     * @return true, если режим выставлен этим вызовом и его надо сбросить в {@link #exit(boolean)}
+     */
+    static boolean enter(boolean readOnly) {
+        if (READ_ONLY.get() != null) return false;
+        READ_ONLY.set(readOnly);
+        return true;
+    }
+
+    static void exit(boolean entered) {
+        if (entered) READ_ONLY.remove();
+    }
+
+    /**
+     * Чтение на primary, в том числе внутри чтения с реплики. Нужно загрузкам в кэш:
+     * значение с отстающей реплики пережило бы в кэше запись, которую реплика ещё не проиграла
+     */
+    public static <T> T onPrimary(Supplier<T> call) {
+        var previous = READ_ONLY.get();
+        READ_ONLY.set(false);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                READ_ONLY.remove();
+            } else {
+                READ_ONLY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Ключ сессии для read-your-writes: имя пользователя, для анонимного запроса адрес клиента,
+     * вне HTTP-запроса поток. Общий ключ привязал бы к primary всех анонимных клиентов сразу
+     */
+    public static String sessionKey() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)
+                && authentication.getName() != null) {
+            return authentication.getName();
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return ANONYMOUS + ':' + attributes.getRequest().getRemoteAddr();
+        }
+        return ANONYMOUS + ":thread-" + Thread.currentThread().getId();
+    }
+}
@@ -0,0 +1,78 @@
+package autoservice.config.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Позиция WAL primary после последней записи по сессиям. Чтение сессии уходит на реплику только если
+ * реплика уже проиграла WAL до этой позиции
+ */
+public class WriteTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteTracker.class);
+
+    /**
+     * Позиция WAL как число байт от начала, чтобы сравнивать её с позицией реплики без pg_lsn в Java
+     */
+    static final String CURRENT_LSN_QUERY = "SELECT pg_current_wal_lsn() - '0/0'::pg_lsn";
+
+    private final Map<String, Write> lastWrites = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private volatile DataSource primary;
+
+    public WriteTracker(long retentionMillis) {
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Подключение primary, с которого читается позиция WAL. Без реплик подключать нечего,
+     * и запись не стоит лишнего запроса
+     */
+    void trackLsnOf(DataSource primary) {
+        this.primary = primary;
+    }
+
+    /**
+     * Запоминает текущую позицию WAL primary для сессии. Если позицию узнать не удалось,
+     * сессия читает с primary до истечения срока хранения
+     */
+    public void recordWrite(String session) {
+        var source = primary;
+        if (source == null) return;
+        var lsn = Long.MAX_VALUE;
+        try (var connection = source.getConnection();
+             var statement = connection.createStatement();
+             var rs = statement.executeQuery(CURRENT_LSN_QUERY)) {
+            rs.next();
+            lsn = rs.getLong(1);
+        } catch (SQLException e) {
+            logger.warn("Cannot read primary WAL position, session {} reads from primary: {}", session, e.getMessage());
+        }
+        var write = new Write(lsn, System.currentTimeMillis());
+        lastWrites.merge(session, write, (old, current) -> old.lsn > current.lsn ? new Write(old.lsn, current.at) : current);
+    }
+
+    /**
+     * @return позиция WAL после последней записи сессии или 0, если сессия давно не писала
+     */
+    public long lastWriteLsn(String session) {
+        var write = lastWrites.get(session);
+        return write == null ? 0 : write.lsn;
+    }
+
+    /**
+     * Забывает записи старше срока хранения: такие сессии читают с реплик на общих условиях
+     */
+    void purge() {
+        var threshold = System.currentTimeMillis() - retentionMillis;
+        lastWrites.values().removeIf(write -> write.at < threshold);
+    }
+
+    private record Write(long lsn, long at) {
+    }
+}
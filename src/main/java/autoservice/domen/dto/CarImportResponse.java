@@ -0,0 +1,32 @@
+package autoservice.domen.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Schema(description = "Результат импорта автомобилей из CSV")
+public class CarImportResponse {
+    @Schema(description = "Сколько автомобилей добавлено", example = "99870")
+    long imported;
+    @Schema(description = "Сколько строк отклонено", example = "130")
+    long rejected;
+    @Schema(description = "Первые отклонённые строки с причинами")
+    List<Reject> rejects;
+
+    @Data
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Reject {
+        @Schema(description = "Номер строки в файле, заголовок - строка 1", example = "42")
+        long line;
+        @Schema(description = "Причина отказа", example = "Неизвестное состояние: BROKEN")
+        String reason;
+    }
+}
@@ -34,4 +34,8 @@ public class CarRequest {
     @Schema(description = "Состояние автомобиля", example = "NEW")
     @NotNull(message = "Состояние не может быть пустым")
     CarState state;
+
+    @Schema(description = "Версия записи, полученная при чтении. Обязательна при изменении", example = "0")
+    @NotNull(groups = OnUpdate.class, message = "Версия записи обязательна при изменении")
+    Integer version;
 }
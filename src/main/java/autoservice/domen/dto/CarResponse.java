@@ -21,4 +21,6 @@ public class CarResponse {
     int year;
     @Schema(description = "Цена автомобиля", example = "20000")
     long price;
+    @Schema(description = "Версия записи для оптимистичной блокировки", example = "0")
+    int version;
 }
@@ -0,0 +1,9 @@
+package autoservice.domen.dto;
+
+import jakarta.validation.groups.Default;
+
+/**
+ * Группа проверок запроса на изменение (PUT): к обычным проверкам добавляется обязательная версия записи
+ */
+public interface OnUpdate extends Default {
+}
@@ -0,0 +1,20 @@
+package autoservice.domen.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Schema(description = "Страница списка")
+public class PageResponse<T> {
+    @Schema(description = "Записи страницы")
+    List<T> items;
+    @Schema(description = "Курсор следующей страницы, отсутствует на последней странице", example = "cHJpY2U6MjUwMDAwMDoxNw")
+    String nextCursor;
+}
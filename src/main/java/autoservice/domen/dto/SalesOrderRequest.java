@@ -27,5 +27,8 @@ public class SalesOrderRequest {
     @Schema(description = "ID автомобиля", example = "1")
     @NotNull(message = "ID автомобиля не может быть пустым")
     private Integer carId;
-}
 
+    @Schema(description = "Версия записи, полученная при чтении. Обязательна при изменении", example = "0")
+    @NotNull(groups = OnUpdate.class, message = "Версия записи обязательна при изменении")
+    private Integer version;
+}
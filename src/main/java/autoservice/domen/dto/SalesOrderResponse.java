@@ -24,5 +24,7 @@ public class SalesOrderResponse {
 
     @Schema(description = "ID автомобиля", example = "1")
     private int carId;
-}
 
+    @Schema(description = "Версия записи для оптимистичной блокировки", example = "0")
+    private int version;
+}
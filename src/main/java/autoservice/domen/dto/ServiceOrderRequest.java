@@ -25,4 +25,8 @@ public class ServiceOrderRequest {
     @NotNull(message = "ID автомобиля не может быть null")
     @Schema(description = "ID автомобиля", example = "456")
     private int carId;
+
+    @Schema(description = "Версия записи, полученная при чтении. Обязательна при изменении", example = "0")
+    @NotNull(groups = OnUpdate.class, message = "Версия записи обязательна при изменении")
+    private Integer version;
 }
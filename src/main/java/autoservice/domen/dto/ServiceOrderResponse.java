@@ -23,4 +23,7 @@ public class ServiceOrderResponse {
 
     @Schema(description = "ID автомобиля", example = "456")
     private int carId;
+
+    @Schema(description = "Версия записи для оптимистичной блокировки", example = "0")
+    private int version;
 }
@@ -3,6 +3,7 @@ package autoservice.domen.dto;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
@@ -32,4 +33,8 @@ public class UserRequest {
     @Schema(description = "Номер телефона пользователя", example = "+1234567890")
     @Pattern(regexp = "^\\+?[0-9]{7,15}$", message = "Неверный формат номера телефона")
     private String phone;
+
+    @Schema(description = "Версия записи, полученная при чтении. Обязательна при изменении", example = "0")
+    @NotNull(groups = OnUpdate.class, message = "Версия записи обязательна при изменении")
+    private Integer version;
 }
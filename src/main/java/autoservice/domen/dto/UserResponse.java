@@ -23,4 +23,7 @@ public class UserResponse {
     String phone;
     @Schema(description = "Email пользователя")
     String email;
-}
\ No newline at end of file
+
+    @Schema(description = "Версия записи для оптимистичной блокировки", example = "0")
+    int version;
+}
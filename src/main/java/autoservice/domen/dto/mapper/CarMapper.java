@@ -18,4 +18,6 @@ public interface CarMapper {
     Car toEntity(CarRequest carRequest);
 
     List<CarResponse> toResponseList(List<Car> cars);
+
+    List<Car> toEntityList(List<CarRequest> carRequests);
 }
@@ -2,10 +2,14 @@ package autoservice.domen.dto.mapper;
 
 import autoservice.domen.dto.SalesOrderRequest;
 import autoservice.domen.dto.SalesOrderResponse;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.EntityRef;
 import autoservice.domen.model.SalesOrder;
+import autoservice.domen.model.User;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
 import java.util.List;
@@ -15,8 +19,8 @@ public interface SalesOrderMapper {
     SalesOrderMapper INSTANCE = Mappers.getMapper(SalesOrderMapper.class);
 
     @Mappings({
-            @Mapping(source = "customerId", target = "customer.id"),
-            @Mapping(source = "carId", target = "car.id")
+            @Mapping(source = "customerId", target = "customer", qualifiedByName = "customerRef"),
+            @Mapping(source = "carId", target = "car", qualifiedByName = "carRef")
     })
     SalesOrder toEntity(SalesOrderRequest request);
 
@@ -29,4 +33,14 @@ public interface SalesOrderMapper {
     List<SalesOrderResponse> toResponseList(List<SalesOrder> orders);
 
     List<SalesOrder> toEntityList(List<SalesOrderRequest> requests);
+
+    @Named("customerRef")
+    default EntityRef<User> customerRef(Integer customerId) {
+        return customerId == null ? null : EntityRef.ofId(customerId);
+    }
+
+    @Named("carRef")
+    default EntityRef<Car> carRef(Integer carId) {
+        return carId == null ? null : EntityRef.ofId(carId);
+    }
 }
@@ -2,9 +2,13 @@ package autoservice.domen.dto.mapper;
 
 import autoservice.domen.dto.ServiceOrderRequest;
 import autoservice.domen.dto.ServiceOrderResponse;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.EntityRef;
 import autoservice.domen.model.ServiceOrder;
+import autoservice.domen.model.User;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
 import java.util.List;
@@ -15,8 +19,8 @@ public interface ServiceOrderMapper {
 
     ServiceOrderMapper INSTANCE = Mappers.getMapper(ServiceOrderMapper.class);
 
-    @Mapping(source = "customerId", target = "customer.id")
-    @Mapping(source = "carId", target = "car.id")
+    @Mapping(source = "customerId", target = "customer", qualifiedByName = "customerRef")
+    @Mapping(source = "carId", target = "car", qualifiedByName = "carRef")
     ServiceOrder toEntity(ServiceOrderRequest request);
 
     @Mapping(source = "customer.id", target = "customerId")
@@ -24,4 +28,14 @@ public interface ServiceOrderMapper {
     ServiceOrderResponse toResponse(ServiceOrder serviceOrder);
 
     List<ServiceOrderResponse> toResponseList(List<ServiceOrder> serviceOrders);
+
+    @Named("customerRef")
+    default EntityRef<User> customerRef(Integer customerId) {
+        return customerId == null ? null : EntityRef.ofId(customerId);
+    }
+
+    @Named("carRef")
+    default EntityRef<Car> carRef(Integer carId) {
+        return carId == null ? null : EntityRef.ofId(carId);
+    }
 }
\ No newline at end of file
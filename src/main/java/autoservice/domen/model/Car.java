@@ -18,4 +18,19 @@ public class Car {
     String model;
     int year;
     long price;
+    /**
+     * Версия строки для оптимистичной блокировки, null - версия неизвестна
+     */
+    Integer version;
+
+    public Car(int id, CarState state, String make, String model, int year, long price) {
+        this(id, state, make, model, year, price, null);
+    }
+
+    /**
+     * @return независимая копия: изменения копии не видны исходному объекту
+     */
+    public Car copy() {
+        return new Car(id, state, make, model, year, price, version);
+    }
 }
@@ -0,0 +1,117 @@
+package autoservice.domen.model;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ссылка на связанную сущность. Хранит только id, сама сущность
+ * загружается при первом обращении к {@link #get()}
+ *
+ * @param <T> тип сущности
+ */
+public final class EntityRef<T> {
+
+    private final int id;
+    private final IntFunction<Optional<T>> loader;
+    private volatile T value;
+
+    private EntityRef(int id, T value, IntFunction<Optional<T>> loader) {
+        this.id = id;
+        this.value = value;
+        this.loader = loader;
+    }
+
+    /**
+     * Ссылка на уже загруженную сущность
+     */
+    public static <T> EntityRef<T> of(int id, T value) {
+        return new EntityRef<>(id, Objects.requireNonNull(value), null);
+    }
+
+    /**
+     * Ссылка, которая загрузит сущность при первом обращении
+     */
+    public static <T> EntityRef<T> lazy(int id, IntFunction<Optional<T>> loader) {
+        return new EntityRef<>(id, null, Objects.requireNonNull(loader));
+    }
+
+    /**
+     * Ссылка только с id, без возможности загрузки (например, из входящего запроса)
+     */
+    public static <T> EntityRef<T> ofId(int id) {
+        return new EntityRef<>(id, null, null);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isLoaded() {
+        return value != null;
+    }
+
+    /**
+     * Получение сущности, при необходимости с загрузкой
+     *
+     * @return сущность
+     * @throws IllegalStateException если сущность не найдена или ссылка не умеет загружать
+     */
+    public T get() {
+        var result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    if (loader == null) {
+                        throw new IllegalStateException("Reference " + id + " is not loadable");
+                    }
+                    result = loader.apply(id)
+                            .orElseThrow(() -> new IllegalStateException("Referenced entity " + id + " not found"));
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Копия ссылки с тем же загрузчиком. Загруженная сущность копируется, загрузка через копию
+     * исходную ссылку не заполняет
+     *
+     * @param copyValue копирование сущности
+     */
+    public EntityRef<T> copy(UnaryOperator<T> copyValue) {
+        return copy(copyValue, loader);
+    }
+
+    /**
+     * Копия ссылки с другим загрузчиком
+     *
+     * @param copyValue копирование сущности
+     * @param loader    загрузчик копии, null - ссылка только с id
+     */
+    public EntityRef<T> copy(UnaryOperator<T> copyValue, IntFunction<Optional<T>> loader) {
+        var loaded = value;
+        if (loaded != null) return of(id, copyValue.apply(loaded));
+        return loader == null ? ofId(id) : lazy(id, loader);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EntityRef<?> other)) return false;
+        return id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityRef(id=" + id + ", loaded=" + isLoaded() + ")";
+    }
+}
@@ -15,6 +15,14 @@ public abstract class Order {
     int id;
     LocalDate date;
     OrderStatus status;
-    User customer;
-    Car car;
+    EntityRef<User> customer;
+    EntityRef<Car> car;
+    /**
+     * Версия строки для оптимистичной блокировки, null - версия неизвестна
+     */
+    Integer version;
+
+    protected Order(int id, LocalDate date, OrderStatus status, EntityRef<User> customer, EntityRef<Car> car) {
+        this(id, date, status, customer, car, null);
+    }
 }
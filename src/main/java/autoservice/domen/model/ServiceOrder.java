@@ -3,10 +3,35 @@ package autoservice.domen.model;
 import autoservice.domen.model.enums.OrderStatus;
 
 import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.IntFunction;
 
 public class ServiceOrder extends Order {
 
-    public ServiceOrder(int id, LocalDate date, OrderStatus status, User customer, Car car) {
+    public ServiceOrder(int id, LocalDate date, OrderStatus status, EntityRef<User> customer, EntityRef<Car> car) {
         super(id, date, status, customer, car);
     }
+
+    /**
+     * @return независимая копия заказа с теми же загрузчиками связанных сущностей
+     */
+    public ServiceOrder copy() {
+        return withRefs(customer.copy(User::copy), car.copy(Car::copy));
+    }
+
+    /**
+     * Копия заказа с другими загрузчиками незагруженных ссылок
+     *
+     * @param userLoader загрузка клиента, null - ссылка только с id
+     * @param carLoader  загрузка автомобиля, null - ссылка только с id
+     */
+    public ServiceOrder copy(IntFunction<Optional<User>> userLoader, IntFunction<Optional<Car>> carLoader) {
+        return withRefs(customer.copy(User::copy, userLoader), car.copy(Car::copy, carLoader));
+    }
+
+    private ServiceOrder withRefs(EntityRef<User> customer, EntityRef<Car> car) {
+        var copy = new ServiceOrder(id, date, status, customer, car);
+        copy.setVersion(version);
+        return copy;
+    }
 }
@@ -27,6 +27,15 @@ public class User implements UserDetails {
     String name;
     String surname;
     String phone;
+    /**
+     * Версия строки для оптимистичной блокировки, null - версия неизвестна
+     */
+    Integer version;
+
+    public User(Integer id, Role role, String email, String username, String password,
+                String name, String surname, String phone) {
+        this(id, role, email, username, password, name, surname, phone, null);
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -52,4 +61,11 @@ public class User implements UserDetails {
     public boolean isEnabled() {
         return true;
     }
+
+    /**
+     * @return независимая копия: изменения копии не видны исходному объекту
+     */
+    public User copy() {
+        return new User(id, role, email, username, password, name, surname, phone, version);
+    }
 }
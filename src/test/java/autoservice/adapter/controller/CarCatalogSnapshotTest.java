@@ -0,0 +1,89 @@
+package autoservice.adapter.controller;
+
+import autoservice.adapter.repository.impl.QueryResultCache;
+import autoservice.adapter.repository.page.Page;
+import autoservice.adapter.service.CarService;
+import autoservice.domen.dto.CarResponse;
+import autoservice.domen.dto.mapper.CarMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CarCatalogSnapshotTest {
+
+    private CarService carService;
+    private CarMapper carMapper;
+    private QueryResultCache queryCache;
+    private CarCatalogSnapshot catalog;
+
+    @BeforeEach
+    void setUp() {
+        carService = mock(CarService.class);
+        carMapper = mock(CarMapper.class);
+        queryCache = new QueryResultCache(0, 0, new SimpleMeterRegistry());
+        catalog = new CarCatalogSnapshot(carService, carMapper, queryCache, true);
+        when(carService.getPage(any(), any())).thenReturn(new Page<>(List.of(), null));
+        when(carMapper.toResponseList(anyList())).thenReturn(List.of(car(1000)));
+    }
+
+    @Test
+    void testSnapshotIsReusedUntilCarsChange() {
+        var first = catalog.get();
+        var second = catalog.get();
+
+        assertSame(first, second);
+        verify(carService, times(1)).getPage(any(), any());
+
+        when(carMapper.toResponseList(anyList())).thenReturn(List.of(car(900)));
+        queryCache.bump("car");
+        var third = catalog.get();
+
+        assertNotEquals(first.etag(), third.etag());
+        verify(carService, times(2)).getPage(any(), any());
+    }
+
+    @Test
+    void testEtagDependsOnContentOnly() {
+        var first = catalog.get();
+        queryCache.bump("car");
+        var rebuilt = catalog.get();
+
+        assertEquals(first.etag(), rebuilt.etag());
+    }
+
+    @Test
+    void testGzipVariantHasOwnEtagAndSameContent() throws IOException {
+        var snapshot = catalog.get();
+
+        assertNotEquals(snapshot.etag(), snapshot.gzipEtag());
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzipped()))) {
+            assertArrayEquals(snapshot.json(), in.readAllBytes());
+        }
+        assertTrue(new String(snapshot.json(), StandardCharsets.UTF_8).contains("\"price\":1000"));
+    }
+
+    private static CarResponse car(long price) {
+        var car = new CarResponse();
+        car.setId(1);
+        car.setPrice(price);
+        return car;
+    }
+}
@@ -0,0 +1,78 @@
+package autoservice.adapter.controller;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JsonStreamWriterTest {
+
+    private final JsonStreamWriter writer = new JsonStreamWriter();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+    }
+
+    @Test
+    void testWritesJsonArray() throws IOException {
+        writer.write(Stream.of(1, 2), id -> Map.of("id", id), "application/json", response);
+
+        verify(response).setContentType("application/json");
+        assertEquals("[{\"id\":1},{\"id\":2}]", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWritesNdjson() throws IOException {
+        writer.write(Stream.of(1, 2), id -> Map.of("id", id), JsonStreamWriter.NDJSON_VALUE, response);
+
+        verify(response).setContentType(JsonStreamWriter.NDJSON_VALUE);
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testEmptyStreamIsEmptyArray() throws IOException {
+        writer.write(Stream.empty(), id -> id, null, response);
+
+        assertEquals("[]", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testClosesSourceStream() throws IOException {
+        var closed = new AtomicBoolean();
+        writer.write(Stream.of(1).onClose(() -> closed.set(true)), id -> id, null, response);
+
+        assertTrue(closed.get(), "Stream must be closed to release the connection");
+    }
+}
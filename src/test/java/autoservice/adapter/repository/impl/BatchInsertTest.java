@@ -0,0 +1,36 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.domen.model.Car;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchInsertTest {
+
+    private final BatchInsert<Car> carInsert = new BatchInsert<>("car_service.car",
+            List.of("make", "model", "year", "price", "state"),
+            car -> new Object[]{car.getMake(), car.getModel(), car.getYear(), car.getPrice(), car.getState().name()},
+            Car::setId);
+
+    @Test
+    void testMultiRowInsertReturnsIds() {
+        assertEquals("INSERT INTO car_service.car (make, model, year, price, state) VALUES "
+                        + "(?, ?, ?, ?, ?), (?, ?, ?, ?, ?) RETURNING id",
+                carInsert.sql(2));
+    }
+
+    @Test
+    void testChunkSizeIsCapped() {
+        assertEquals(BatchInsert.CHUNK_SIZE, carInsert.chunkSize());
+    }
+
+    @Test
+    void testChunkSizeRespectsParameterLimit() {
+        var wide = new BatchInsert<Car>("t", Collections.nCopies(100, "c"), car -> new Object[0], Car::setId);
+
+        assertEquals(Short.MAX_VALUE / 100, wide.chunkSize());
+    }
+}
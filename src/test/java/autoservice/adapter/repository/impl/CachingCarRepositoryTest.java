@@ -0,0 +1,125 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.CarRepository;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingCarRepositoryTest {
+
+    private CarRepository delegate;
+    private Cache<Integer, Optional<Car>> cache;
+    private CachingCarRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(CarRepository.class);
+        cache = Caffeine.newBuilder().recordStats().build();
+        repository = new CachingCarRepository(delegate, cache);
+    }
+
+    @Test
+    void testFindByIdHitsDatabaseOnce() {
+        when(delegate.findById(1)).thenReturn(Optional.of(car(1, 0)));
+
+        repository.findById(1);
+        var found = repository.findById(1);
+
+        assertEquals("Toyota", found.orElseThrow().getMake());
+        verify(delegate, times(1)).findById(1);
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void testMissingIdIsCachedAsNegative() {
+        when(delegate.findById(404)).thenReturn(Optional.empty());
+
+        assertTrue(repository.findById(404).isEmpty());
+        assertTrue(repository.findById(404).isEmpty());
+        assertFalse(repository.existsById(404));
+
+        verify(delegate, times(1)).findById(404);
+        verify(delegate, never()).existsById(404);
+    }
+
+    @Test
+    void testReturnedCarIsCopy() {
+        when(delegate.findById(1)).thenReturn(Optional.of(car(1, 0)));
+
+        repository.findById(1).orElseThrow().setPrice(1);
+
+        assertEquals(10_000, repository.findById(1).orElseThrow().getPrice());
+    }
+
+    @Test
+    void testCreateAndUpdateWriteThrough() {
+        when(delegate.findById(404)).thenReturn(Optional.empty());
+        repository.findById(404);
+        when(delegate.create(any())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+
+        repository.create(car(404, 0));
+        var updated = car(404, 1);
+        updated.setState(CarState.SOLD);
+        when(delegate.update(updated)).thenReturn(1);
+        repository.update(updated);
+
+        assertEquals(CarState.SOLD, repository.findById(404).orElseThrow().getState());
+        verify(delegate, times(1)).findById(404);
+    }
+
+    @Test
+    void testFailedUpdateAndDeleteInvalidate() {
+        when(delegate.findById(1)).thenReturn(Optional.of(car(1, 0)));
+        when(delegate.findById(2)).thenReturn(Optional.of(car(2, 0)));
+        repository.findById(1);
+        repository.findById(2);
+
+        repository.update(car(1, 0));
+        repository.deleteById(2);
+
+        assertTrue(cache.asMap().isEmpty());
+    }
+
+    @Test
+    void testStateChangeAndClaimPutReturnedRows() {
+        when(delegate.findById(1)).thenReturn(Optional.of(car(1, 0)));
+        when(delegate.findById(2)).thenReturn(Optional.of(car(2, 0)));
+        repository.findById(1);
+        repository.findById(2);
+        var sold = car(1, 1);
+        sold.setState(CarState.SOLD);
+        var inService = car(2, 1);
+        inService.setState(CarState.FOR_SERVICE);
+        when(delegate.updateState(List.of(1, 3), CarState.SOLD)).thenReturn(List.of(sold));
+
+        repository.updateState(List.of(1, 3), CarState.SOLD);
+        repository.refresh(inService);
+
+        assertEquals(CarState.SOLD, repository.findById(1).orElseThrow().getState());
+        assertEquals(1, repository.findById(1).orElseThrow().getVersion());
+        assertEquals(CarState.FOR_SERVICE, repository.findById(2).orElseThrow().getState());
+        assertFalse(cache.asMap().containsKey(3));
+        verify(delegate, times(1)).findById(1);
+        verify(delegate, times(1)).findById(2);
+    }
+
+    private static Car car(int id, int version) {
+        return new Car(id, CarState.FOR_SALE, "Toyota", "Corolla", 2020, 10_000, version);
+    }
+}
@@ -0,0 +1,93 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.CarImportException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Testcontainers
+class CarImportRepositoryImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("car_service")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static CarImportRepositoryImpl importRepository;
+
+    @BeforeAll
+    static void setUp() {
+        var dataSource = new DriverManagerDataSource(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        importRepository = new CarImportRepositoryImpl(jdbcTemplate, new QueryResultCache(0, 0, new SimpleMeterRegistry()));
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS car_service");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS car_service.car (" +
+                "id SERIAL PRIMARY KEY, make VARCHAR(255) NOT NULL, model VARCHAR(255) NOT NULL, " +
+                "year INT NOT NULL, price BIGINT NOT NULL, state VARCHAR(255) NOT NULL)");
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE car_service.car");
+    }
+
+    @Test
+    void testValidRowsImportedAndInvalidReported() {
+        var csv = """
+                make,model,year,price,state
+                Toyota,Corolla,2021,20000,FOR_SALE
+                Lada,Vesta,20x1,10000,FOR_SALE
+                BMW,X5,2020,50000,BROKEN
+                ,Civic,2019,15000,SOLD
+                Kia,Rio,2018,9000,SOLD
+                """;
+
+        var result = importRepository.importCsv(stream(csv), 10);
+
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(3, result.getRejects().get(0).getLine());
+        assertEquals("Некорректный год: 20x1", result.getRejects().get(0).getReason());
+        assertEquals("Неизвестное состояние: BROKEN", result.getRejects().get(1).getReason());
+        assertEquals(5, result.getRejects().get(2).getLine());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM car_service.car", Integer.class));
+    }
+
+    @Test
+    void testRejectListIsCapped() {
+        var csv = "make,model,year,price,state\n" + "A,B,0,1,SOLD\n".repeat(5);
+
+        var result = importRepository.importCsv(stream(csv), 2);
+
+        assertEquals(5, result.getRejected());
+        assertEquals(2, result.getRejects().size());
+    }
+
+    @Test
+    void testMalformedCsvRollsBack() {
+        var csv = "make,model,year,price,state\nToyota,Corolla,2021,20000,FOR_SALE\nbroken\n";
+
+        assertThrows(CarImportException.class, () -> importRepository.importCsv(stream(csv), 10));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM car_service.car", Integer.class));
+    }
+
+    private static ByteArrayInputStream stream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,290 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.DuplicateUserException;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.EntityRef;
+import autoservice.domen.model.SalesOrder;
+import autoservice.domen.model.ServiceOrder;
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.CarState;
+import autoservice.domen.model.enums.OrderStatus;
+import autoservice.domen.model.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Запись через репозитории на схеме из changelog: удаление, обновление по версии,
+ * UPDATE ... RETURNING, upsert с явным id и занятые username или email
+ */
+@Testcontainers
+class CrudWritePathTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("car_service")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static CarRepositoryImpl carRepository;
+    private static UserRepositoryImpl userRepository;
+    private static OrderRepositoryImpl orderRepository;
+    private static ServiceOrderRepositoryImpl serviceOrderRepository;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        var dataSource = new DriverManagerDataSource(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+        migrate(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        var streamer = new JdbcStreamer(jdbcTemplate, 500);
+        var queryCache = new QueryResultCache(0, 0, new SimpleMeterRegistry());
+        carRepository = new CarRepositoryImpl(jdbcTemplate, streamer, queryCache);
+        userRepository = new UserRepositoryImpl(jdbcTemplate, streamer, queryCache);
+        orderRepository = new OrderRepositoryImpl(userRepository, carRepository, jdbcTemplate, streamer, queryCache);
+        serviceOrderRepository = new ServiceOrderRepositoryImpl(userRepository, carRepository, jdbcTemplate, streamer,
+                queryCache);
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE car_service.sales_order, car_service.service_order, car_service.car, " +
+                "car_service.user RESTART IDENTITY CASCADE");
+    }
+
+    @Test
+    void testCreateReturnsIdAndInitialVersion() {
+        var car = carRepository.create(car("Corolla")).orElseThrow();
+
+        assertEquals(1, car.getId());
+        assertEquals(0, car.getVersion());
+    }
+
+    @Test
+    void testDeleteRemovesRowOnce() {
+        var car = carRepository.create(car("Corolla")).orElseThrow();
+
+        assertEquals(1, carRepository.delete(car));
+        assertEquals(0, carRepository.deleteById(car.getId()));
+        assertTrue(carRepository.findById(car.getId()).isEmpty());
+        assertFalse(carRepository.existsById(car.getId()));
+    }
+
+    @Test
+    void testUpdateChecksVersion() {
+        var car = carRepository.create(car("Corolla")).orElseThrow();
+        var stale = car("Camry");
+        stale.setId(car.getId());
+        stale.setVersion(0);
+
+        car.setPrice(25_000);
+        assertEquals(1, carRepository.update(car));
+        assertEquals(1, car.getVersion());
+        assertEquals(0, carRepository.update(stale));
+
+        var saved = carRepository.findById(car.getId()).orElseThrow();
+        assertEquals("Corolla", saved.getModel());
+        assertEquals(25_000, saved.getPrice());
+        assertEquals(1, saved.getVersion());
+    }
+
+    @Test
+    void testUpdateReturningGivesRowAfterUpdate() {
+        var car = carRepository.create(car("Corolla")).orElseThrow();
+        car.setState(CarState.SOLD);
+
+        var updated = carRepository.updateReturning(car).orElseThrow();
+
+        assertEquals(CarState.SOLD, updated.getState());
+        assertEquals("Corolla", updated.getModel());
+        assertEquals(1, updated.getVersion());
+        assertTrue(carRepository.updateReturning(car).isEmpty(), "Version 0 is stale after the update");
+    }
+
+    @Test
+    void testUpsertReplacesExistingRowAndBumpsVersion() {
+        var car = carRepository.create(car("Corolla")).orElseThrow();
+        var replacement = car("Camry");
+        replacement.setId(car.getId());
+
+        var saved = carRepository.upsert(replacement).orElseThrow();
+
+        assertEquals(car.getId(), saved.getId());
+        assertEquals("Camry", saved.getModel());
+        assertEquals(1, saved.getVersion());
+    }
+
+    @Test
+    void testUpsertWithExplicitIdAdvancesSequence() {
+        var imported = car("Corolla");
+        imported.setId(100);
+        carRepository.upsert(imported).orElseThrow();
+
+        var created = carRepository.create(car("Camry")).orElseThrow();
+
+        assertEquals(101, created.getId());
+    }
+
+    @Test
+    void testUpsertBelowSequenceDoesNotMoveItBack() {
+        carRepository.create(car("Corolla"));
+        carRepository.create(car("Camry"));
+        carRepository.deleteById(1);
+        var restored = car("Corolla");
+        restored.setId(1);
+        carRepository.upsert(restored).orElseThrow();
+
+        assertEquals(3, carRepository.create(car("Rav4")).orElseThrow().getId());
+    }
+
+    @Test
+    void testConcurrentUpsertDoesNotMoveSequenceBack() throws Exception {
+        var restored = carRepository.create(car("Corolla")).orElseThrow();
+        var executor = Executors.newFixedThreadPool(6);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(() -> {
+                    for (int n = 0; n < 100; n++) carRepository.create(car("Camry")).orElseThrow();
+                    return null;
+                });
+            }
+            for (int i = 0; i < 2; i++) {
+                tasks.add(() -> {
+                    for (int n = 0; n < 100; n++) {
+                        var replacement = car("Corolla");
+                        replacement.setId(restored.getId());
+                        carRepository.upsert(replacement).orElseThrow();
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(401, jdbcTemplate.queryForObject("SELECT count(*) FROM car_service.car", Integer.class));
+        assertEquals(402, carRepository.create(car("Rav4")).orElseThrow().getId());
+    }
+
+    @Test
+    void testUserUpsertWithExplicitIdDoesNotBlockNextSignUp() {
+        var imported = user("ivan");
+        imported.setId(1);
+        userRepository.upsert(imported).orElseThrow();
+
+        var created = userRepository.create(user("petr"));
+
+        assertTrue(created.isPresent(), "Sign-up must not hit the id taken by the upsert");
+        assertEquals(2, created.get().getId());
+    }
+
+    @Test
+    void testDuplicateUserNamesClashingField() {
+        userRepository.create(user("ivan"));
+        var sameUsername = user("ivan");
+        sameUsername.setEmail("other@mail.com");
+
+        var byUsername = assertThrows(DuplicateUserException.class, () -> userRepository.create(sameUsername));
+        var byEmail = assertThrows(DuplicateUserException.class,
+                () -> userRepository.createAll(List.of(user("petr"), withEmail(user("oleg"), "ivan@mail.com"))));
+
+        assertEquals("username", byUsername.getField());
+        assertEquals("email", byEmail.getField());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM car_service.user", Integer.class));
+    }
+
+    @Test
+    void testUpdateToTakenUsernameOrEmailNamesClashingField() {
+        userRepository.create(user("ivan"));
+        var petr = userRepository.create(user("petr")).orElseThrow();
+        petr.setUsername("ivan");
+        var renamed = assertThrows(DuplicateUserException.class, () -> userRepository.update(petr));
+        petr.setUsername("petr");
+        petr.setEmail("ivan@mail.com");
+        var reEmailed = assertThrows(DuplicateUserException.class, () -> userRepository.updateReturning(petr));
+        petr.setEmail("petr@mail.com");
+        petr.setUsername("ivan");
+        var upserted = assertThrows(DuplicateUserException.class, () -> userRepository.upsert(petr));
+
+        assertEquals("username", renamed.getField());
+        assertEquals("email", reEmailed.getField());
+        assertEquals("username", upserted.getField());
+        assertEquals(0, userRepository.findById(petr.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testOrderUpsertWithExplicitIdAdvancesSequence() {
+        var customer = userRepository.create(user("ivan")).orElseThrow();
+        var car = carRepository.create(car("Corolla")).orElseThrow();
+        var sold = new SalesOrder(10, LocalDate.now(), OrderStatus.COMPLETE, EntityRef.ofId(customer.getId()),
+                EntityRef.ofId(car.getId()));
+        var serviced = new ServiceOrder(10, LocalDate.now(), OrderStatus.COMPLETE, EntityRef.ofId(customer.getId()),
+                EntityRef.ofId(car.getId()));
+        orderRepository.upsert(sold).orElseThrow();
+        serviceOrderRepository.upsert(serviced).orElseThrow();
+
+        var nextSale = orderRepository.create(new SalesOrder(0, LocalDate.now(), OrderStatus.IN_PROGRESS,
+                EntityRef.ofId(customer.getId()), EntityRef.ofId(car.getId()))).orElseThrow();
+        var nextService = serviceOrderRepository.create(new ServiceOrder(0, LocalDate.now(), OrderStatus.IN_PROGRESS,
+                EntityRef.ofId(customer.getId()), EntityRef.ofId(car.getId()))).orElseThrow();
+
+        assertEquals(11, nextSale.getId());
+        assertEquals(11, nextService.getId());
+    }
+
+    private static Car car(String model) {
+        return new Car(0, CarState.FOR_SALE, "Toyota", model, 2021, 20_000);
+    }
+
+    private static User user(String username) {
+        return new User(null, Role.CLIENT, username + "@mail.com", username, "password", "Name", "Surname",
+                "+79000000000");
+    }
+
+    private static User withEmail(User user, String email) {
+        user.setEmail(email);
+        return user;
+    }
+
+    private static void migrate(DataSource target) throws Exception {
+        try (var connection = target.getConnection()) {
+            var database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            var accessor = new DirectoryResourceAccessor(Path.of("src/main/resources/db/changelog"));
+            Scope.child(Scope.Attr.resourceAccessor.name(), accessor, () -> new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, "db.changelog-master.xml")
+                    .execute());
+        }
+    }
+}
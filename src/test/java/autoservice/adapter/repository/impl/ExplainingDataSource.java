@@ -0,0 +1,130 @@
+package autoservice.adapter.repository.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Обёртка над DataSource для тестов планов: перед выполнением каждого подготовленного
+ * SELECT/UPDATE/DELETE/INSERT тем же соединением и с теми же параметрами выполняет
+ * EXPLAIN (FORMAT JSON) и запоминает план
+ */
+class ExplainingDataSource extends DelegatingDataSource {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<Explained> plans = new ArrayList<>();
+
+    ExplainingDataSource(DataSource target) {
+        super(target);
+    }
+
+    record Explained(String sql, JsonNode plan) {
+
+        /**
+         * Все узлы плана, включая вложенные
+         */
+        List<JsonNode> nodes() {
+            var result = new ArrayList<JsonNode>();
+            collect(plan, result);
+            return result;
+        }
+
+        double totalCost() {
+            return plan.path("Total Cost").asDouble();
+        }
+
+        private static void collect(JsonNode node, List<JsonNode> result) {
+            result.add(node);
+            for (var child : node.path("Plans")) {
+                collect(child, result);
+            }
+        }
+    }
+
+    synchronized List<Explained> drain() {
+        var result = List.copyOf(plans);
+        plans.clear();
+        return result;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    var result = invoke(connection, method, args);
+                    if (method.getName().equals("prepareStatement") && args != null && args[0] instanceof String sql
+                            && isExplainable(sql)) {
+                        return wrap(connection, (PreparedStatement) result, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private PreparedStatement wrap(Connection connection, PreparedStatement statement, String sql) {
+        Map<Integer, Object> params = new TreeMap<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    var name = method.getName();
+                    if (name.equals("setNull")) {
+                        params.put((Integer) args[0], null);
+                    } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        params.put(index, args[1]);
+                    } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                        explain(connection, sql, params);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private void explain(Connection connection, String sql, Map<Integer, Object> params) throws Exception {
+        try (var ps = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + sql)) {
+            for (var param : params.entrySet()) {
+                ps.setObject(param.getKey(), param.getValue());
+            }
+            try (var rs = ps.executeQuery()) {
+                rs.next();
+                var plan = MAPPER.readTree(rs.getString(1)).get(0).get("Plan");
+                synchronized (this) {
+                    plans.add(new Explained(sql, plan));
+                }
+            }
+        }
+    }
+
+    private static boolean isExplainable(String sql) {
+        var head = sql.stripLeading().toUpperCase();
+        return head.startsWith("SELECT") || head.startsWith("UPDATE") || head.startsWith("DELETE")
+                || head.startsWith("INSERT") || head.startsWith("WITH");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.FetchPlan;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderGraphQueryTest {
+
+    @Test
+    void testOrderOnlyPlanHasNoJoins() {
+        var sql = OrderGraphQuery.select("car_service.sales_order", FetchPlan.ORDER, "status = ?");
+
+        assertEquals("SELECT o.id, o.customer_id, o.car_id, o.date, o.status, o.version "
+                + "FROM (SELECT * FROM car_service.sales_order WHERE status = ?) o", sql);
+    }
+
+    @Test
+    void testFullPlanJoinsCustomerAndCar() {
+        var sql = OrderGraphQuery.select("car_service.sales_order", FetchPlan.ORDER_CUSTOMER_CAR, "TRUE");
+
+        assertTrue(sql.contains("u.username AS u_username"), "Customer columns should be aliased");
+        assertTrue(sql.contains("c.state AS c_state"), "Car columns should be aliased");
+        assertTrue(sql.contains("JOIN car_service.user u ON u.id = o.customer_id"));
+        assertTrue(sql.contains("JOIN car_service.car c ON c.id = o.car_id"));
+        assertFalse(sql.contains("password"), "Order graph must not carry the customer's password hash");
+    }
+
+    @Test
+    void testCustomerPlanSkipsCarJoin() {
+        var sql = OrderGraphQuery.select("car_service.service_order", FetchPlan.ORDER_CUSTOMER, "TRUE");
+
+        assertTrue(sql.contains("JOIN car_service.user u"));
+        assertFalse(sql.contains("car_service.car c"));
+    }
+}
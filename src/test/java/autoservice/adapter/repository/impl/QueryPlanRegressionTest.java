@@ -0,0 +1,197 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.adapter.repository.FetchPlan;
+import autoservice.adapter.repository.page.PageRequest;
+import autoservice.adapter.repository.specification.CarColumns;
+import autoservice.adapter.repository.specification.OrderColumns;
+import autoservice.adapter.repository.specification.Specification;
+import autoservice.adapter.repository.specification.UserColumns;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.EntityRef;
+import autoservice.domen.model.SalesOrder;
+import autoservice.domen.model.enums.CarState;
+import autoservice.domen.model.enums.OrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Планы запросов репозиториев на объёме, близком к боевому. Схема и индексы поднимаются
+ * настоящим changelog, каждый запрос репозитория перехватывается и прогоняется через
+ * EXPLAIN (FORMAT JSON). Тест падает, если запрос читает большую таблицу целиком
+ * или его стоимость вышла за бюджет
+ */
+@Testcontainers
+class QueryPlanRegressionTest {
+
+    private static final Set<String> LARGE_TABLES = Set.of("user", "car", "sales_order", "service_order");
+
+    /**
+     * Бюджет стоимости одного запроса в единицах планировщика. Полный проход по таблице
+     * заказов стоит тысячи, страница по индексу вместе с JOIN клиентов и автомобилей - сотни
+     */
+    private static final double COST_BUDGET = 2_500;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("car_service")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private static ExplainingDataSource dataSource;
+    private static CarRepositoryImpl carRepository;
+    private static UserRepositoryImpl userRepository;
+    private static OrderRepositoryImpl orderRepository;
+    private static ServiceOrderRepositoryImpl serviceOrderRepository;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        var target = new DriverManagerDataSource(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+        migrate(target);
+        generateData(new JdbcTemplate(target));
+
+        dataSource = new ExplainingDataSource(target);
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        var streamer = new JdbcStreamer(jdbcTemplate, 500);
+        // Кэш результатов выключен: каждый запрос должен дойти до базы и попасть в EXPLAIN
+        var queryCache = new QueryResultCache(0, 0, new SimpleMeterRegistry());
+        carRepository = new CarRepositoryImpl(jdbcTemplate, streamer, queryCache);
+        userRepository = new UserRepositoryImpl(jdbcTemplate, streamer, queryCache);
+        orderRepository = new OrderRepositoryImpl(userRepository, carRepository, jdbcTemplate, streamer, queryCache);
+        serviceOrderRepository = new ServiceOrderRepositoryImpl(userRepository, carRepository, jdbcTemplate, streamer,
+                queryCache);
+    }
+
+    @AfterEach
+    void resetPlans() {
+        dataSource.drain();
+    }
+
+    @Test
+    void testCarQueries() {
+        carRepository.findById(150_000);
+        carRepository.findPage(Specification.all(), PageRequest.of(null, 50));
+        var forSale = CarColumns.STATE.eq(CarState.FOR_SALE);
+        var page = carRepository.findPage(forSale, PageRequest.of(null, 50));
+        carRepository.findPage(forSale, PageRequest.of(page.nextCursor(), 50));
+        carRepository.findPage(forSale, PageRequest.of(null, 50, CarColumns.BY_PRICE));
+        try (var cars = carRepository.findByFilter(CarColumns.ID.in(List.of(1, 2, 3)))) {
+            cars.forEach(car -> { });
+        }
+        carRepository.update(new Car(10, CarState.FOR_SALE, "Toyota", "Corolla", 2020, 10_000));
+        carRepository.updateState(List.of(11, 12), CarState.FOR_SALE);
+        carRepository.deleteById(-1);
+
+        assertPlans();
+    }
+
+    @Test
+    void testUserQueries() {
+        userRepository.findById(100);
+        userRepository.findByUsername("user_4000");
+        userRepository.findPage(Specification.all(), PageRequest.of(null, 50));
+        try (var users = userRepository.findByFilter(UserColumns.EMAIL.eq("user_4000@mail.com"))) {
+            users.forEach(user -> { });
+        }
+
+        assertPlans();
+    }
+
+    @Test
+    void testOrderQueries() {
+        for (var plan : FetchPlan.values()) {
+            orderRepository.findById(500, plan);
+            orderRepository.findPage(Specification.all(), PageRequest.of(null, 50), plan);
+            orderRepository.findPage(OrderColumns.STATUS.eq(OrderStatus.IN_PROGRESS), PageRequest.of(null, 50), plan);
+            serviceOrderRepository.findPage(OrderColumns.STATUS.eq(OrderStatus.IN_PROGRESS), PageRequest.of(null, 50), plan);
+        }
+        try (var orders = orderRepository.findByFilter(OrderColumns.CUSTOMER_ID.eq(42), FetchPlan.ORDER)) {
+            orders.forEach(order -> { });
+        }
+        try (var orders = serviceOrderRepository.findByFilter(OrderColumns.CAR_ID.eq(42), FetchPlan.ORDER)) {
+            orders.forEach(order -> { });
+        }
+        var day = LocalDate.of(2023, 5, 17);
+        try (var orders = serviceOrderRepository.findByFilter(OrderColumns.DATE.eq(day), FetchPlan.ORDER)) {
+            orders.forEach(order -> { });
+        }
+        orderRepository.update(new SalesOrder(7, day, OrderStatus.COMPLETE, EntityRef.ofId(1), EntityRef.ofId(1)));
+        orderRepository.deleteById(-1);
+
+        assertPlans();
+    }
+
+    private static void assertPlans() {
+        var plans = dataSource.drain();
+        assertFalse(plans.isEmpty(), "No repository query was explained");
+        for (var explained : plans) {
+            for (var node : explained.nodes()) {
+                if ("Seq Scan".equals(node.path("Node Type").asText())
+                        && LARGE_TABLES.contains(node.path("Relation Name").asText())) {
+                    fail("Sequential scan on " + node.path("Relation Name").asText() + ":\n"
+                            + explained.sql() + "\n" + explained.plan().toPrettyString());
+                }
+            }
+            assertTrue(explained.totalCost() <= COST_BUDGET, () -> "Plan cost " + explained.totalCost()
+                    + " exceeds budget " + COST_BUDGET + ":\n" + explained.sql() + "\n" + explained.plan().toPrettyString());
+        }
+    }
+
+    private static void migrate(DataSource target) throws Exception {
+        try (var connection = target.getConnection()) {
+            var database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            var accessor = new DirectoryResourceAccessor(Path.of("src/main/resources/db/changelog"));
+            Scope.child(Scope.Attr.resourceAccessor.name(), accessor, () -> new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, "db.changelog-master.xml")
+                    .execute());
+        }
+    }
+
+    private static void generateData(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("""
+                INSERT INTO car_service.user (role, username, password, name, surname, phone, email)
+                SELECT (ARRAY['CLIENT', 'CLIENT', 'CLIENT', 'MANAGER', 'ADMIN'])[1 + n % 5],
+                       'user_' || n, 'password', 'Name' || n, 'Surname' || n, '+7900' || n, 'user_' || n || '@mail.com'
+                FROM generate_series(1, 50000) n""");
+        jdbcTemplate.execute("""
+                INSERT INTO car_service.car (make, model, year, price, state)
+                SELECT 'Make' || n % 50, 'Model' || n % 500, 1990 + n % 35, 5000 + (n * 7919) % 100000,
+                       CASE WHEN n % 20 = 0 THEN 'FOR_SALE' WHEN n % 20 = 1 THEN 'FOR_SERVICE'
+                            WHEN n % 20 = 2 THEN 'NOT_SALE' ELSE 'SOLD' END
+                FROM generate_series(1, 200000) n""");
+        for (var table : List.of("sales_order", "service_order")) {
+            jdbcTemplate.execute("INSERT INTO car_service." + table + " (customer_id, car_id, date, status) " + """
+                    SELECT 1 + n % 50000, 1 + n % 200000, DATE '2020-01-01' + n % 1800,
+                           CASE WHEN n % 50 = 0 THEN 'IN_PROGRESS' WHEN n % 10 = 1 THEN 'CANCEL' ELSE 'COMPLETE' END
+                    FROM generate_series(1, 300000) n""");
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
@@ -0,0 +1,119 @@
+package autoservice.adapter.repository.impl;
+
+import autoservice.domen.model.Car;
+import autoservice.domen.model.EntityRef;
+import autoservice.domen.model.SalesOrder;
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.CarState;
+import autoservice.domen.model.enums.OrderStatus;
+import autoservice.domen.model.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryResultCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryResultCache cache = new QueryResultCache(100, 60, registry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testSameQueryIsLoadedOnce() {
+        query("SELECT * FROM car WHERE state = ?", "FOR_SALE");
+        query("SELECT *\n  FROM car   WHERE state = ?", "FOR_SALE");
+
+        assertEquals(1, loads.get());
+        assertEquals(1, registry.get("cache.query.requests").tag("query", "car.findPage").tag("result", "hit")
+                .counter().count());
+    }
+
+    @Test
+    void testParametersArePartOfKey() {
+        query("SELECT * FROM car WHERE state = ?", "FOR_SALE");
+        query("SELECT * FROM car WHERE state = ?", "SOLD");
+        query("SELECT * FROM car WHERE id = ANY(?)", (Object) new Object[]{1, 2});
+        query("SELECT * FROM car WHERE id = ANY(?)", (Object) new Object[]{1, 2});
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testWriteToReadTableInvalidates() {
+        query("SELECT * FROM car", 1);
+        cache.bump("user");
+        query("SELECT * FROM car", 1);
+        cache.bump("car");
+        query("SELECT * FROM car", 1);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testResultIsImmutableSnapshot() {
+        var rows = query("SELECT * FROM car", 1);
+
+        assertThrows(UnsupportedOperationException.class, () -> rows.add("row"));
+    }
+
+    @Test
+    void testEachCallerGetsOwnCopy() {
+        Supplier<List<Car>> loader = () -> List.of(new Car(1, CarState.FOR_SALE, "Toyota", "Camry", 2020, 100, 0));
+        var first = cache.query("car.findPage", List.of("car"), "SELECT * FROM car", new Object[0], loader, Car::copy);
+        first.get(0).setVersion(5);
+
+        var second = cache.query("car.findPage", List.of("car"), "SELECT * FROM car", new Object[0], loader, Car::copy);
+        second.get(0).setPrice(1);
+        var third = cache.query("car.findPage", List.of("car"), "SELECT * FROM car", new Object[0], loader, Car::copy);
+
+        assertEquals(0, third.get(0).getVersion());
+        assertEquals(100, third.get(0).getPrice());
+    }
+
+    @Test
+    void testCachedOrderHoldsNoLoaderAndHitAttachesCurrentOne() {
+        var loaded = new AtomicInteger();
+        var customer = new User(7, Role.CLIENT, "ivan@mail.com", "ivan", null, "Иван", "Иванов", null);
+        Supplier<List<SalesOrder>> loader = () -> List.of(new SalesOrder(1, LocalDate.now(), OrderStatus.IN_PROGRESS,
+                EntityRef.lazy(7, id -> Optional.of(customer)), EntityRef.ofId(3)));
+        UnaryOperator<SalesOrder> detach = order -> order.copy(null, null);
+        UnaryOperator<SalesOrder> attach = order -> order.copy(id -> {
+            loaded.incrementAndGet();
+            return Optional.of(customer.copy());
+        }, null);
+
+        cache.query("sales_order.findPage", List.of("sales_order"), "SELECT 1", new Object[0], loader, detach, attach);
+        var hit = cache.query("sales_order.findPage", List.of("sales_order"), "SELECT 1", new Object[0], loader,
+                detach, attach);
+
+        assertEquals("ivan", hit.get(0).getCustomer().get().getUsername());
+        assertEquals(1, loaded.get());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() {
+        var disabled = new QueryResultCache(0, 0, registry);
+        disabled.query("car.findPage", List.of("car"), "SELECT 1", new Object[0], this::load, UnaryOperator.identity());
+        disabled.query("car.findPage", List.of("car"), "SELECT 1", new Object[0], this::load, UnaryOperator.identity());
+
+        assertEquals(2, loads.get());
+    }
+
+    private List<String> query(String sql, Object... args) {
+        return cache.query("car.findPage", List.of("car"), sql, args, this::load, UnaryOperator.identity());
+    }
+
+    private List<String> load() {
+        loads.incrementAndGet();
+        return new ArrayList<>(List.of("row"));
+    }
+}
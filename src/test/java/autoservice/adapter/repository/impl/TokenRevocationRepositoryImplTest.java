@@ -0,0 +1,88 @@
+package autoservice.adapter.repository.impl;
+
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Отзыв хранится одной строкой на пользователя, версия в ней не уменьшается
+ */
+@Testcontainers
+class TokenRevocationRepositoryImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("car_service")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TokenRevocationRepositoryImpl repository;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        var dataSource = new DriverManagerDataSource(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+        migrate(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new TokenRevocationRepositoryImpl(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE car_service.token_revocation");
+    }
+
+    @Test
+    void testRepeatedRevokeKeepsSingleRow() {
+        repository.revoke(1, 2);
+        repository.revoke(1, 5);
+        repository.revoke(1, 3);
+        repository.revoke(2, 1);
+
+        assertEquals(Map.of(1, 5, 2, 1), repository.findMinVersions());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM car_service.token_revocation", Integer.class));
+    }
+
+    @Test
+    void testRevokeRefreshesRetention() {
+        repository.revoke(1, 2);
+        jdbcTemplate.update("UPDATE car_service.token_revocation SET created_at = now() - interval '400 days'");
+        repository.revoke(1, 3);
+
+        assertEquals(0, repository.deleteOlderThan(Instant.now().minusSeconds(60)));
+        assertEquals(Map.of(1, 3), repository.findMinVersions());
+    }
+
+    private static void migrate(DataSource target) throws Exception {
+        try (var connection = target.getConnection()) {
+            var database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            var accessor = new DirectoryResourceAccessor(Path.of("src/main/resources/db/changelog"));
+            Scope.child(Scope.Attr.resourceAccessor.name(), accessor, () -> new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, "db.changelog-master.xml")
+                    .execute());
+        }
+    }
+}
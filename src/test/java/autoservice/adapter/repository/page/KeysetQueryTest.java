@@ -0,0 +1,76 @@
+package autoservice.adapter.repository.page;
+
+import autoservice.adapter.repository.specification.CarColumns;
+import autoservice.adapter.repository.specification.Specification;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetQueryTest {
+
+    @Test
+    void testFirstPageById() {
+        var query = KeysetQuery.of(Specification.all(), PageRequest.of(null, 2));
+
+        assertEquals("TRUE ORDER BY id LIMIT ?", query.suffix());
+        assertEquals(List.of(3), query.params(), "One extra row should be requested");
+    }
+
+    @Test
+    void testNextCursorContinuesAfterLastRow() {
+        var cars = List.of(car(1, 100), car(2, 200), car(3, 200));
+        var first = KeysetQuery.of(Specification.all(), PageRequest.of(null, 2, CarColumns.BY_PRICE));
+        var page = first.toPage(cars, Car::getId);
+
+        assertEquals(2, page.items().size());
+
+        var next = KeysetQuery.of(CarColumns.STATE.eq(CarState.FOR_SALE),
+                PageRequest.of(page.nextCursor(), 2, CarColumns.BY_PRICE));
+        assertEquals("state = ? AND (price, id) > (?, ?) ORDER BY price, id LIMIT ?", next.suffix());
+        assertEquals(List.of("FOR_SALE", 200L, 2, 3), next.params());
+    }
+
+    @Test
+    void testLastPageHasNoCursor() {
+        var query = KeysetQuery.of(Specification.all(), PageRequest.of(null, 5));
+
+        assertNull(query.toPage(List.of(car(1, 100)), Car::getId).nextCursor());
+    }
+
+    @Test
+    void testCursorOfAnotherSortIsRejected() {
+        var page = KeysetQuery.of(Specification.all(), PageRequest.<Car>of(null, 1))
+                .toPage(List.of(car(1, 100), car(2, 200)), Car::getId);
+
+        assertThrows(InvalidPageRequestException.class,
+                () -> KeysetQuery.of(Specification.all(), PageRequest.of(page.nextCursor(), 1, CarColumns.BY_PRICE)));
+        assertThrows(InvalidPageRequestException.class,
+                () -> KeysetQuery.of(Specification.all(), PageRequest.of("not a cursor", 1)));
+    }
+
+    @Test
+    void testTamperedCursorIsRejected() {
+        assertThrows(InvalidPageRequestException.class,
+                () -> KeysetQuery.of(Specification.all(), PageRequest.of(cursor("price:cheap:2"), 1, CarColumns.BY_PRICE)));
+        assertThrows(InvalidPageRequestException.class,
+                () -> KeysetQuery.of(Specification.all(), PageRequest.of(cursor("id:x:2"), 1)));
+        assertThrows(InvalidPageRequestException.class,
+                () -> KeysetQuery.of(Specification.all(), PageRequest.of(cursor("id:2:x"), 1)));
+    }
+
+    private static String cursor(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Car car(int id, long price) {
+        return new Car(id, CarState.FOR_SALE, "Toyota", "Camry", 2020, price);
+    }
+}
@@ -0,0 +1,78 @@
+package autoservice.adapter.repository.specification;
+
+import autoservice.domen.model.enums.CarState;
+import autoservice.domen.model.enums.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpecificationTest {
+
+    @Test
+    void testEqualityCompilesToPlaceholder() {
+        var where = CarColumns.STATE.eq(CarState.FOR_SALE).toSql();
+
+        assertEquals("state = ?", where.sql());
+        assertEquals(List.of("FOR_SALE"), where.params(), "Enum should be bound by name");
+    }
+
+    @Test
+    void testAndOrKeepParameterOrder() {
+        var where = CarColumns.MAKE.like("Toy%")
+                .and(CarColumns.PRICE.between(1000L, 5000L).or(CarColumns.YEAR.ge(2020)))
+                .toSql();
+
+        assertEquals("(make ILIKE ? AND (price BETWEEN ? AND ? OR year >= ?))", where.sql());
+        assertEquals(List.of("Toy%", 1000L, 5000L, 2020), where.params());
+    }
+
+    @Test
+    void testInAndNull() {
+        var where = OrderColumns.STATUS.in(List.of(OrderStatus.COMPLETE, OrderStatus.CANCEL))
+                .and(OrderColumns.DATE.eq(null))
+                .toSql();
+
+        assertEquals("(status IN (?, ?) AND date IS NULL)", where.sql());
+        assertEquals(List.of("COMPLETE", "CANCEL"), where.params());
+    }
+
+    @Test
+    void testNullEqualityCompilesToIsNull() {
+        var where = CarColumns.MAKE.eq(null).and(CarColumns.MODEL.notEq(null)).toSql();
+
+        assertEquals("(make IS NULL AND model IS NOT NULL)", where.sql());
+        assertEquals(0, where.params().size());
+    }
+
+    @Test
+    void testNullInComparisonIsRejected() {
+        var e = assertThrows(IllegalArgumentException.class, () -> CarColumns.PRICE.gt(null));
+
+        assertEquals("Не задано значение для условия price >", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CarColumns.YEAR.between(2020, null));
+        assertThrows(IllegalArgumentException.class, () -> OrderColumns.DATE.le(null));
+        assertThrows(IllegalArgumentException.class, () -> CarColumns.MAKE.like(null));
+        assertThrows(IllegalArgumentException.class, () -> UserColumns.ID.in(Arrays.asList(1, null)));
+    }
+
+    @Test
+    void testEmptyInMatchesNothing() {
+        var where = UserColumns.ID.in(List.of()).toSql();
+
+        assertEquals("FALSE", where.sql());
+        assertEquals(0, where.params().size());
+    }
+
+    @Test
+    void testDateIsConvertedToSqlDate() {
+        var date = LocalDate.of(2024, 8, 10);
+        var where = OrderColumns.DATE.lt(date).toSql();
+
+        assertEquals(List.of(java.sql.Date.valueOf(date)), where.params());
+    }
+}
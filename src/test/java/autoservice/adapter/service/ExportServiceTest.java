@@ -0,0 +1,57 @@
+package autoservice.adapter.service;
+
+import autoservice.adapter.repository.ExportRepository;
+import autoservice.adapter.repository.ExportTable;
+import autoservice.adapter.service.impl.ExportService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ExportServiceTest {
+
+    private static final String CSV = "id,make\n1,Toyota\n";
+
+    private final ExportRepository repository = (table, out) -> write(out);
+    private final ExportService exportService = new ExportService(repository);
+
+    @Test
+    void testPlainExport() throws IOException {
+        var out = new ByteArrayOutputStream();
+
+        assertEquals(1, exportService.exportCsv(ExportTable.CARS, out, false));
+        assertEquals(CSV, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testGzipExport() throws IOException {
+        var out = new ByteArrayOutputStream();
+        exportService.exportCsv(ExportTable.CARS, out, true);
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testUsersExportSkipsPassword() {
+        assertFalse(ExportTable.USERS.getQuery().contains("password"));
+    }
+
+    private static long write(OutputStream out) {
+        try {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+            return 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
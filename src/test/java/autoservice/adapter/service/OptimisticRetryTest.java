@@ -0,0 +1,69 @@
+package autoservice.adapter.service;
+
+import autoservice.adapter.service.impl.OptimisticRetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticRetry retry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retry = new OptimisticRetry(3, 1, 5, meterRegistry);
+    }
+
+    @Test
+    void testConflictIsRetriedUntilSuccess() {
+        var attempts = new AtomicInteger();
+
+        var result = retry.call("car", () -> {
+            if (attempts.incrementAndGet() < 3) throw retry.conflict("car", 1);
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, count("optimistic.lock.conflicts"));
+        assertEquals(2, count("optimistic.lock.retries"));
+        assertEquals(0, count("optimistic.lock.exhausted"));
+    }
+
+    @Test
+    void testConflictIsRethrownWhenAttemptsAreExhausted() {
+        var attempts = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> retry.run("car", () -> {
+            attempts.incrementAndGet();
+            throw retry.conflict("car", 1);
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(1, count("optimistic.lock.exhausted"));
+    }
+
+    @Test
+    void testOtherExceptionsAreNotRetried() {
+        var attempts = new AtomicInteger();
+
+        assertThrows(NotFoundException.class, () -> retry.run("car", () -> {
+            attempts.incrementAndGet();
+            throw new NotFoundException(NotFoundException.MSG);
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    private double count(String name) {
+        var counter = meterRegistry.find(name).tag("entity", "car").counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,189 @@
+package autoservice.adapter.service;
+
+import autoservice.adapter.repository.impl.CarRepositoryImpl;
+import autoservice.adapter.repository.impl.JdbcStreamer;
+import autoservice.adapter.repository.impl.OrderRepositoryImpl;
+import autoservice.adapter.repository.impl.QueryResultCache;
+import autoservice.adapter.repository.impl.ServiceOrderRepositoryImpl;
+import autoservice.adapter.repository.impl.UserRepositoryImpl;
+import autoservice.adapter.service.impl.OptimisticRetry;
+import autoservice.adapter.service.impl.SalesOrderServiceImpl;
+import autoservice.adapter.service.impl.ServiceOrderServiceImpl;
+import autoservice.adapter.service.impl.SingleFlight;
+import autoservice.domen.model.EntityRef;
+import autoservice.domen.model.SalesOrder;
+import autoservice.domen.model.ServiceOrder;
+import autoservice.domen.model.enums.OrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Одиночное и пакетное создание заказов занимают автомобиль одинаково: второй захват того же автомобиля
+ * получает 409 и не меняет ни заказы, ни состояние автомобиля
+ */
+@Testcontainers
+class OrderCarClaimTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("car_service")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static SalesOrderServiceImpl salesOrderService;
+    private static ServiceOrderServiceImpl serviceOrderService;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        var dataSource = new DriverManagerDataSource(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+        migrate(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        var meterRegistry = new SimpleMeterRegistry();
+        var streamer = new JdbcStreamer(jdbcTemplate, 500);
+        var queryCache = new QueryResultCache(0, 0, meterRegistry);
+        var carRepository = new CarRepositoryImpl(jdbcTemplate, streamer, queryCache);
+        var userRepository = new UserRepositoryImpl(jdbcTemplate, streamer, queryCache);
+        var optimisticRetry = new OptimisticRetry(1, 0, 0, meterRegistry);
+        var singleFlight = new SingleFlight(false, meterRegistry);
+        salesOrderService = new SalesOrderServiceImpl(
+                new OrderRepositoryImpl(userRepository, carRepository, jdbcTemplate, streamer, queryCache),
+                carRepository, optimisticRetry, singleFlight);
+        serviceOrderService = new ServiceOrderServiceImpl(
+                new ServiceOrderRepositoryImpl(userRepository, carRepository, jdbcTemplate, streamer, queryCache),
+                carRepository, optimisticRetry, singleFlight);
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE car_service.sales_order, car_service.service_order, car_service.car, " +
+                "car_service.user RESTART IDENTITY CASCADE");
+        jdbcTemplate.update("INSERT INTO car_service.user (role, username, password, name, surname, phone, email) " +
+                "VALUES ('CLIENT', 'client', 'password', 'Name', 'Surname', '+79000000000', 'client@mail.com')");
+        jdbcTemplate.update("INSERT INTO car_service.car (make, model, year, price, state) " +
+                "VALUES ('Toyota', 'Corolla', 2021, 20000, 'FOR_SALE'), ('Kia', 'Rio', 2018, 9000, 'FOR_SALE')");
+    }
+
+    @Test
+    void testBatchCannotResellCarSoldBySingleOrder() {
+        salesOrderService.create(salesOrder(1));
+
+        var e = assertThrows(CarUnavailableException.class,
+                () -> salesOrderService.createAll(List.of(salesOrder(2), salesOrder(1))));
+
+        assertConflict(e);
+        assertEquals(1, count("sales_order"));
+        assertEquals(Map.of(1, "SOLD", 2, "FOR_SALE"), carStates());
+    }
+
+    @Test
+    void testSingleOrderCannotResellCarSoldByBatch() {
+        salesOrderService.createAll(List.of(salesOrder(1), salesOrder(2)));
+
+        var e = assertThrows(CarUnavailableException.class, () -> salesOrderService.create(salesOrder(2)));
+
+        assertConflict(e);
+        assertEquals(2, count("sales_order"));
+        assertEquals(Map.of(1, "SOLD", 2, "SOLD"), carStates());
+    }
+
+    @Test
+    void testSecondBatchOnSameCarIsConflict() {
+        salesOrderService.createAll(List.of(salesOrder(1)));
+
+        assertConflict(assertThrows(CarUnavailableException.class,
+                () -> salesOrderService.createAll(List.of(salesOrder(1)))));
+        assertEquals(1, count("sales_order"));
+    }
+
+    @Test
+    void testSameCarTwiceInOneBatchIsConflict() {
+        assertConflict(assertThrows(CarUnavailableException.class,
+                () -> salesOrderService.createAll(List.of(salesOrder(1), salesOrder(1)))));
+        assertEquals(0, count("sales_order"));
+        assertEquals(Map.of(1, "FOR_SALE", 2, "FOR_SALE"), carStates());
+    }
+
+    @Test
+    void testMissingCarRollsBackWholeBatch() {
+        assertThrows(NotFoundException.class,
+                () -> salesOrderService.createAll(List.of(salesOrder(1), salesOrder(99))));
+        assertEquals(0, count("sales_order"));
+        assertEquals(Map.of(1, "FOR_SALE", 2, "FOR_SALE"), carStates());
+    }
+
+    @Test
+    void testServiceBatchCannotClaimCarAlreadyInService() {
+        serviceOrderService.create(serviceOrder(1));
+
+        assertConflict(assertThrows(CarUnavailableException.class,
+                () -> serviceOrderService.createAll(List.of(serviceOrder(1)))));
+        assertEquals(1, count("service_order"));
+        assertEquals(Map.of(1, "FOR_SERVICE", 2, "FOR_SALE"), carStates());
+    }
+
+    private static SalesOrder salesOrder(int carId) {
+        return new SalesOrder(0, LocalDate.now(), OrderStatus.IN_PROGRESS, EntityRef.ofId(1), EntityRef.ofId(carId));
+    }
+
+    private static ServiceOrder serviceOrder(int carId) {
+        return new ServiceOrder(0, LocalDate.now(), OrderStatus.IN_PROGRESS, EntityRef.ofId(1), EntityRef.ofId(carId));
+    }
+
+    private static void assertConflict(RuntimeException e) {
+        var status = AnnotationUtils.findAnnotation(e.getClass(), ResponseStatus.class);
+        assertEquals(HttpStatus.CONFLICT, status.value());
+    }
+
+    private static int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM car_service." + table, Integer.class);
+    }
+
+    private static Map<Integer, String> carStates() {
+        var states = new TreeMap<Integer, String>();
+        jdbcTemplate.query("SELECT id, state FROM car_service.car",
+                rs -> { states.put(rs.getInt("id"), rs.getString("state")); });
+        return states;
+    }
+
+    private static void migrate(DataSource target) throws Exception {
+        try (var connection = target.getConnection()) {
+            var database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            var accessor = new DirectoryResourceAccessor(Path.of("src/main/resources/db/changelog"));
+            Scope.child(Scope.Attr.resourceAccessor.name(), accessor, () -> new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, "db.changelog-master.xml")
+                    .execute());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package autoservice.adapter.service;
+
+import autoservice.adapter.repository.DuplicateUserException;
+import autoservice.adapter.repository.UserRepository;
+import autoservice.adapter.service.impl.OptimisticRetry;
+import autoservice.adapter.service.impl.TokenRevocationService;
+import autoservice.adapter.service.impl.UserCache;
+import autoservice.adapter.service.impl.UserService;
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.Role;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceCacheTest {
+
+    private UserRepository repository;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserRepository.class);
+        var meterRegistry = new SimpleMeterRegistry();
+        userService = new UserService(repository, new OptimisticRetry(1, 0, 0, meterRegistry),
+                new UserCache(Caffeine.newBuilder().maximumSize(100), meterRegistry), mock(TokenRevocationService.class));
+    }
+
+    @Test
+    void testRepeatedLookupHitsCache() {
+        var user = user("ivan");
+        when(repository.findByUsername("ivan")).thenReturn(Optional.of(user));
+
+        assertSame(user, userService.getByUsername("ivan"));
+        assertSame(user, userService.getByUsername("ivan"));
+
+        verify(repository, times(1)).findByUsername("ivan");
+    }
+
+    @Test
+    void testMissingUserIsNotCached() {
+        when(repository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userService.getByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> userService.getByUsername("ghost"));
+
+        verify(repository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void testUpdateEvictsEntryUnderOldUsername() {
+        when(repository.findByUsername("ivan")).thenReturn(Optional.of(user("ivan")));
+        when(repository.update(any(User.class))).thenReturn(1);
+        userService.getByUsername("ivan");
+
+        var renamed = user("ivan_new");
+        renamed.setVersion(0);
+        userService.update(renamed);
+        userService.getByUsername("ivan");
+
+        verify(repository, times(2)).findByUsername("ivan");
+    }
+
+    @Test
+    void testLoadInFlightDuringUpdateDoesNotCacheStaleUser() throws Exception {
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var stale = user("ivan");
+        stale.setVersion(0);
+        var fresh = user("ivan");
+        fresh.setVersion(1);
+        fresh.setRole(Role.ADMIN);
+        when(repository.findByUsername("ivan")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(fresh));
+        when(repository.update(any(User.class))).thenReturn(1);
+
+        var reader = CompletableFuture.supplyAsync(() -> userService.getByUsername("ivan"));
+        loading.await();
+        var updated = user("ivan");
+        updated.setVersion(0);
+        userService.update(updated);
+        release.countDown();
+        reader.get();
+
+        assertSame(fresh, userService.getByUsername("ivan"));
+    }
+
+    @Test
+    void testUpdateWithoutVersionIsRejected() {
+        assertThrows(VersionRequiredException.class, () -> userService.update(user("ivan")));
+
+        verify(repository, never()).update(any(User.class));
+    }
+
+    @Test
+    void testDuplicateEmailIsConflictNamingTheField() {
+        when(repository.create(any(User.class))).thenThrow(new DuplicateUserException("email", null));
+
+        var e = assertThrows(UserConflictException.class, () -> userService.create(user("ivan")));
+
+        assertEquals("Пользователь с таким email уже существует", e.getMessage());
+        assertEquals(HttpStatus.CONFLICT,
+                AnnotationUtils.findAnnotation(UserConflictException.class, ResponseStatus.class).value());
+    }
+
+    @Test
+    void testUpdateToTakenUsernameIsConflict() {
+        when(repository.update(any(User.class))).thenThrow(new DuplicateUserException("username", null));
+        var renamed = user("petr");
+        renamed.setVersion(0);
+
+        var e = assertThrows(UserConflictException.class, () -> userService.update(renamed));
+
+        assertEquals("Пользователь с таким именем уже существует", e.getMessage());
+    }
+
+    @Test
+    void testDeleteEvictsEntry() {
+        when(repository.findByUsername("ivan")).thenReturn(Optional.of(user("ivan")));
+        when(repository.deleteById(1)).thenReturn(1);
+        userService.getByUsername("ivan");
+
+        userService.deleteById(1);
+        userService.getByUsername("ivan");
+
+        verify(repository, times(2)).findByUsername("ivan");
+        assertEquals(1, userService.getByUsername("ivan").getId());
+    }
+
+    private static User user(String username) {
+        return new User(1, Role.CLIENT, username + "@mail.com", username, "password", "Иван", "Иванов", null);
+    }
+}
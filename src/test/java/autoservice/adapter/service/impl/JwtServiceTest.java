@@ -0,0 +1,66 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.domen.model.User;
+import autoservice.domen.model.enums.Role;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+
+    private static final String KEY = "53A73E5F1C4E0A2D3B5F2D784E6A1B423D6F247D1F6E5C3A596D635A75327855";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService(1, KEY, 100, meterRegistry);
+    }
+
+    @Test
+    void testValidateReturnsAllClaimsAndCachesVerification() {
+        var user = new User(7, Role.MANAGER, "ivan@mail.com", "ivan", "password", "Иван", "Иванов", null, 3);
+        var token = jwtService.generateToken(user);
+
+        var first = jwtService.validate(token);
+        var second = jwtService.validate(token);
+
+        assertEquals("ivan", first.getSubject());
+        var principal = jwtService.extractPrincipal(second);
+        assertEquals(7, principal.getId());
+        assertEquals(Role.MANAGER, principal.getRole());
+        assertEquals(3, principal.getVersion());
+        assertTrue(jwtService.isTokenValid(second, user));
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        var token = jwtService.generateToken(new User(1, Role.CLIENT, "a@mail.com", "user", "p", null, null, null));
+        var tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtService.validate(tampered));
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        var expiring = new JwtService(0, KEY, 100, meterRegistry);
+        var token = expiring.generateToken(new User(1, Role.CLIENT, "a@mail.com", "user", "p", null, null, null));
+
+        assertThrows(ExpiredJwtException.class, () -> expiring.validate(token));
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "verified_tokens").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,67 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.service.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 5000, 2, registry);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void testReturnsResultAndRecordsLatency() {
+        assertEquals("hash", executor.call(() -> "hash"));
+        assertEquals(1, registry.get("auth.hashing.duration").timer().count());
+    }
+
+    @Test
+    void testRejectsWhenPoolAndQueueAreFull() throws Exception {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var running = CompletableFuture.runAsync(() -> executor.call(() -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        var queued = CompletableFuture.runAsync(() -> executor.call(() -> null));
+        while (registry.get("auth.hashing.queue").gauge().value() < 1) Thread.onSpinWait();
+
+        var busy = assertThrows(PasswordHashingBusyException.class, () -> executor.call(() -> "rejected"));
+        assertEquals(2, busy.getRetryAfterSeconds());
+        assertEquals(1, registry.get("auth.hashing.rejected").counter().count());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRethrowsWorkException() {
+        assertThrows(IllegalArgumentException.class, () -> executor.call(() -> {
+            throw new IllegalArgumentException();
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.service.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(true, registry);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void testConcurrentIdenticalCallsShareOneExecution() throws Exception {
+        var executor = Executors.newFixedThreadPool(6);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var result = List.of("car");
+        var leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("car.getAll", List.of(), () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return result;
+        }), executor);
+        started.await(5, TimeUnit.SECONDS);
+
+        var followers = new ArrayList<CompletableFuture<List<String>>>();
+        for (var i = 0; i < 5; i++) {
+            followers.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("car.getAll", List.of(), () -> {
+                calls.incrementAndGet();
+                return List.of();
+            }), executor));
+        }
+        while (coalesced() < 5) Thread.onSpinWait();
+        release.countDown();
+
+        assertSame(result, leader.get(5, TimeUnit.SECONDS));
+        for (var follower : followers) {
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testEachCallerGetsOwnCopyOfMutableResult() throws Exception {
+        var executor = Executors.newFixedThreadPool(2);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("car.getAll", List.of(), () -> {
+            started.countDown();
+            await(release);
+            return List.of(new StringBuilder("car"));
+        }, SingleFlightTest::copy), executor);
+        started.await(5, TimeUnit.SECONDS);
+        var follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("car.getAll", List.of(),
+                () -> List.<StringBuilder>of(), SingleFlightTest::copy), executor);
+        while (coalesced() < 1) Thread.onSpinWait();
+        release.countDown();
+
+        var leaderResult = leader.get(5, TimeUnit.SECONDS);
+        leaderResult.get(0).append(" sold");
+        var followerResult = follower.get(5, TimeUnit.SECONDS);
+
+        assertNotSame(leaderResult.get(0), followerResult.get(0));
+        assertEquals("car", followerResult.get(0).toString());
+        executor.shutdown();
+    }
+
+    private static List<StringBuilder> copy(List<StringBuilder> rows) {
+        return rows.stream().map(StringBuilder::new).toList();
+    }
+
+    @Test
+    void testDifferentKeysRunSeparately() {
+        singleFlight.execute("car.getEntitiesByFilter", "a", calls::incrementAndGet);
+        singleFlight.execute("car.getEntitiesByFilter", "b", calls::incrementAndGet);
+        singleFlight.execute("car.getEntitiesByFilter", "a", calls::incrementAndGet);
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testExceptionReachesCallerAndReleasesKey() {
+        assertThrows(NotFoundException.class, () -> singleFlight.execute("car.getAll", List.of(), () -> {
+            throw new NotFoundException(NotFoundException.MSG);
+        }));
+
+        assertEquals(1, (int) singleFlight.execute("car.getAll", List.of(), calls::incrementAndGet));
+    }
+
+    @Test
+    void testDisabledAlwaysExecutes() {
+        var disabled = new SingleFlight(false, registry);
+        disabled.execute("car.getAll", List.of(), calls::incrementAndGet);
+        disabled.execute("car.getAll", List.of(), calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        assertTrue(registry.find("singleflight.calls").counters().isEmpty());
+    }
+
+    private double coalesced() {
+        var counter = registry.find("singleflight.calls").tag("role", "coalesced").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package autoservice.adapter.service.impl;
+
+import autoservice.adapter.repository.TokenRevocationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private TokenRevocationRepository repository;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TokenRevocationRepository.class);
+        service = new TokenRevocationService(repository, false, 5000, 365, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testNotReadyUntilFirstSync() {
+        assertFalse(service.isReady());
+
+        when(repository.findMinVersions()).thenReturn(Map.of());
+        service.sync();
+
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    void testTokensBeforeMinVersionAreRevoked() {
+        service.revoke(1, 3);
+
+        verify(repository).revoke(1, 3);
+        assertTrue(service.isRevoked(1, 2));
+        assertFalse(service.isRevoked(1, 3));
+        assertFalse(service.isRevoked(2, 0));
+    }
+
+    @Test
+    void testSyncDoesNotLoseLocalRevocation() {
+        service.revoke(1, 5);
+        when(repository.findMinVersions()).thenReturn(Map.of(1, 2, 7, 1));
+
+        service.sync();
+
+        assertTrue(service.isRevoked(1, 4));
+        assertTrue(service.isRevoked(7, 0));
+    }
+}
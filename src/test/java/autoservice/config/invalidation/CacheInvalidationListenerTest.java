@@ -0,0 +1,275 @@
+package autoservice.config.invalidation;
+
+import autoservice.adapter.repository.CarRepository;
+import autoservice.adapter.repository.impl.CachingCarRepository;
+import autoservice.adapter.repository.impl.CarRepositoryImpl;
+import autoservice.adapter.repository.impl.JdbcStreamer;
+import autoservice.adapter.repository.impl.QueryResultCache;
+import autoservice.config.CacheConfig;
+import autoservice.domen.model.Car;
+import autoservice.domen.model.enums.CarState;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Два контекста приложения на одной базе: запись через один узел сбрасывает кэш другого
+ */
+@Testcontainers
+class CacheInvalidationListenerTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:15.2")
+                    .withDatabaseName("car_service")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private static AnnotationConfigApplicationContext nodeA;
+    private static AnnotationConfigApplicationContext nodeB;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        migrate(dataSource());
+        nodeA = node();
+        nodeB = node();
+        await(() -> listener(nodeA).isConnected() && listener(nodeB).isConnected());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void testUpdateOnOneNodeEvictsOtherNode() {
+        var car = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "Vesta", 2022, 15_000)).orElseThrow();
+        carRepository(nodeB).findById(car.getId());
+        assertTrue(carCache(nodeB).asMap().containsKey(car.getId()));
+
+        car.setPrice(14_000);
+        assertEquals(1, carRepository(nodeA).update(car));
+
+        await(() -> !carCache(nodeB).asMap().containsKey(car.getId()));
+        assertEquals(14_000, carRepository(nodeB).findById(car.getId()).orElseThrow().getPrice());
+        // Узел, сделавший запись, уже держит новую версию и её не теряет
+        assertTrue(carCache(nodeA).asMap().containsKey(car.getId()));
+    }
+
+    @Test
+    void testDeleteOnOneNodeEvictsOtherNode() {
+        var car = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "Granta", 2021, 9_000)).orElseThrow();
+        carRepository(nodeB).findById(car.getId());
+
+        carRepository(nodeA).deleteById(car.getId());
+
+        await(() -> !carCache(nodeB).asMap().containsKey(car.getId()));
+        assertTrue(carRepository(nodeB).findById(car.getId()).isEmpty());
+    }
+
+    @Test
+    void testWriteBypassingRepositoryEvicts() {
+        var car = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "Niva", 2020, 12_000)).orElseThrow();
+        carRepository(nodeA).findById(car.getId());
+        carRepository(nodeB).findById(car.getId());
+
+        new JdbcTemplate(dataSource()).update("UPDATE car_service.car SET state = 'SOLD', version = version + 1 WHERE id = ?",
+                car.getId());
+
+        await(() -> !carCache(nodeA).asMap().containsKey(car.getId())
+                && !carCache(nodeB).asMap().containsKey(car.getId()));
+    }
+
+    @Test
+    void testSmallStatementNotifiesEachRow() throws Exception {
+        var first = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "Kalina", 2014, 4_000)).orElseThrow();
+        var second = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "Priora", 2015, 5_000)).orElseThrow();
+
+        var payloads = notifications("UPDATE car_service.car SET version = version + 1 WHERE id IN ("
+                + first.getId() + ", " + second.getId() + ")");
+
+        assertEquals(Set.of("car:U:" + first.getId() + ":1", "car:U:" + second.getId() + ":1"), Set.copyOf(payloads));
+        assertEquals(2, payloads.size());
+    }
+
+    @Test
+    void testBulkStatementSendsSingleFlush() throws Exception {
+        assertEquals(List.of("car:*"), notifications("INSERT INTO car_service.car (make, model, year, price, state) " +
+                "SELECT 'Lada', 'Niva ' || n, 2020, 10000, 'FOR_SALE' FROM generate_series(1, 150) n"));
+        assertEquals(List.of("car:*"), notifications(
+                "UPDATE car_service.car SET version = version + 1 WHERE model LIKE 'Niva %'"));
+        assertEquals(List.of("car:*"), notifications("DELETE FROM car_service.car WHERE model LIKE 'Niva %'"));
+    }
+
+    @Test
+    void testBulkStatementFlushesOtherNode() {
+        var car = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "XRAY", 2018, 8_000)).orElseThrow();
+        carRepository(nodeB).findById(car.getId());
+        assertTrue(carCache(nodeB).asMap().containsKey(car.getId()));
+
+        new JdbcTemplate(dataSource()).update("INSERT INTO car_service.car (make, model, year, price, state) " +
+                "SELECT 'Lada', 'Largus ' || n, 2020, 10000, 'FOR_SALE' FROM generate_series(1, 150) n");
+
+        await(() -> carCache(nodeB).asMap().isEmpty());
+    }
+
+        @Test
+    void testReconnectFlushesCache() {
+        var car = carRepository(nodeA).create(new Car(0, CarState.FOR_SALE, "Lada", "Largus", 2019, 11_000)).orElseThrow();
+        carRepository(nodeB).findById(car.getId());
+
+        new JdbcTemplate(dataSource()).queryForList(
+                "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = 'LISTEN "
+                        + CacheInvalidationListener.CHANNEL + "'");
+
+        await(() -> carCache(nodeB).asMap().isEmpty());
+        await(() -> listener(nodeB).isConnected());
+    }
+
+    private static AnnotationConfigApplicationContext node() {
+        var context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.datasource.url", postgreSQLContainer.getJdbcUrl(),
+                "spring.datasource.username", postgreSQLContainer.getUsername(),
+                "spring.datasource.password", postgreSQLContainer.getPassword(),
+                "cache.invalidation.poll-ms", "100",
+                "cache.invalidation.reconnect-ms", "100")));
+        context.register(CacheConfig.class, Node.class);
+        context.refresh();
+        return context;
+    }
+
+    private static DriverManagerDataSource dataSource() {
+        return new DriverManagerDataSource(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+    }
+
+    /**
+     * Выполняет оператор и собирает уведомления, которые он отправил
+     */
+    private static List<String> notifications(String sql) throws Exception {
+        try (var connection = dataSource().getConnection(); var statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CacheInvalidationListener.CHANNEL);
+            statement.execute(sql);
+            var payloads = new ArrayList<String>();
+            var received = connection.unwrap(PGConnection.class).getNotifications(500);
+            while (received != null && received.length > 0) {
+                for (var notification : received) payloads.add(notification.getParameter());
+                received = connection.unwrap(PGConnection.class).getNotifications(200);
+            }
+            return payloads;
+        }
+    }
+
+    private static void migrate(DataSource target) throws Exception {
+        try (var connection = target.getConnection()) {
+            var database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            var accessor = new DirectoryResourceAccessor(Path.of("src/main/resources/db/changelog"));
+            Scope.child(Scope.Attr.resourceAccessor.name(), accessor, () -> new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, "db.changelog-master.xml")
+                    .execute());
+        }
+    }
+
+    private static CacheInvalidationListener listener(AnnotationConfigApplicationContext node) {
+        return node.getBean(CacheInvalidationListener.class);
+    }
+
+    private static CarRepository carRepository(AnnotationConfigApplicationContext node) {
+        return node.getBean(CarRepository.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<Integer, Optional<Car>> carCache(AnnotationConfigApplicationContext node) {
+        return node.getBean("carCache", Cache.class);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Condition not met in time");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Узел приложения: свой пул, свои кэши и свой слушатель
+     */
+    @Configuration
+    static class Node {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(@Value("${spring.datasource.url}") String url,
+                                  @Value("${spring.datasource.username}") String username,
+                                  @Value("${spring.datasource.password}") String password) {
+            return new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+        }
+
+        @Bean
+        QueryResultCache queryResultCache(MeterRegistry meterRegistry) {
+            return new QueryResultCache(1000, 60, meterRegistry);
+        }
+
+        @Bean
+        CarRepository carRepositoryImpl(JdbcTemplate jdbcTemplate, QueryResultCache queryResultCache) {
+            return new CarRepositoryImpl(jdbcTemplate, new JdbcStreamer(jdbcTemplate, 100), queryResultCache);
+        }
+
+        @Bean
+        @Primary
+        CarRepository cachingCarRepository(@Qualifier("carRepositoryImpl") CarRepository delegate,
+                                           Cache<Integer, Optional<Car>> carCache) {
+            return new CachingCarRepository(delegate, carCache);
+        }
+    }
+}
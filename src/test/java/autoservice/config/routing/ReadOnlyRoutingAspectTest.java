@@ -0,0 +1,57 @@
+package autoservice.config.routing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadOnlyRoutingAspectTest {
+
+    private final List<String> recorded = new ArrayList<>();
+    private final ReadOnlyRoutingAspect aspect = new ReadOnlyRoutingAspect(new WriteTracker(1000) {
+        @Override
+        public void recordWrite(String session) {
+            recorded.add(session);
+        }
+    });
+
+    @Test
+    void testNestedWritesRecordPositionOnce() throws Throwable {
+        var inner = call("refresh", () -> null);
+        var outer = call("create", () -> {
+            aspect.route(inner);
+            return aspect.route(inner);
+        });
+
+        aspect.route(outer);
+
+        assertEquals(1, recorded.size());
+    }
+
+    @Test
+    void testReadDoesNotRecordPosition() throws Throwable {
+        aspect.route(call("findById", () -> null));
+
+        assertEquals(0, recorded.size());
+    }
+
+    private static ProceedingJoinPoint call(String method, Body body) throws Throwable {
+        var signature = mock(Signature.class);
+        when(signature.getName()).thenReturn(method);
+        var joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed()).thenAnswer(invocation -> body.run());
+        return joinPoint;
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        Object run() throws Throwable;
+    }
+}
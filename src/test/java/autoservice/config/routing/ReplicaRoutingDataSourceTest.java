@@ -0,0 +1,169 @@
+package autoservice.config.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Маршрутизация на двух PostgreSQL с потоковой репликацией: primary и hot standby
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReplicaRoutingDataSourceTest {
+
+    private static final String IMAGE = "bitnami/postgresql:15";
+    private static final int PORT = 5432;
+
+    private static final Network network = Network.newNetwork();
+
+    private static final GenericContainer<?> primary = new GenericContainer<>(IMAGE)
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withEnv(Map.of(
+                    "POSTGRESQL_REPLICATION_MODE", "master",
+                    "POSTGRESQL_REPLICATION_USER", "replicator",
+                    "POSTGRESQL_REPLICATION_PASSWORD", "replicator",
+                    "POSTGRESQL_USERNAME", "test",
+                    "POSTGRESQL_PASSWORD", "test",
+                    "POSTGRESQL_DATABASE", "car_service"))
+            .withExposedPorts(PORT)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 1));
+
+    private static final GenericContainer<?> replica = new GenericContainer<>(IMAGE)
+            .withNetwork(network)
+            .withEnv(Map.of(
+                    "POSTGRESQL_REPLICATION_MODE", "slave",
+                    "POSTGRESQL_MASTER_HOST", "primary",
+                    "POSTGRESQL_MASTER_PORT_NUMBER", String.valueOf(PORT),
+                    "POSTGRESQL_REPLICATION_USER", "replicator",
+                    "POSTGRESQL_REPLICATION_PASSWORD", "replicator",
+                    "POSTGRESQL_USERNAME", "test",
+                    "POSTGRESQL_PASSWORD", "test"))
+            .withExposedPorts(PORT)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept read-only connections.*", 1));
+
+    private static WriteTracker writeTracker;
+    private static ReplicaHealthMonitor monitor;
+    private static ReplicaRoutingDataSource dataSource;
+    private static JdbcTemplate primaryTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        primary.start();
+        replica.dependsOn(primary);
+        replica.start();
+
+        var primaryDataSource = dataSource(primary);
+        var replicaDataSource = dataSource(replica);
+        primaryTemplate = new JdbcTemplate(primaryDataSource);
+        writeTracker = new WriteTracker(60_000);
+        // Проверки вызываются тестом явно, чтобы момент проверки был под контролем
+        monitor = new ReplicaHealthMonitor(primaryDataSource, Map.of("replica-1", replicaDataSource), 1_000,
+                3_600_000, writeTracker, new SimpleMeterRegistry());
+        dataSource = new ReplicaRoutingDataSource(primaryDataSource, List.of(replicaDataSource), monitor,
+                writeTracker, new SimpleMeterRegistry());
+        primaryTemplate.execute("CREATE TABLE car (id SERIAL PRIMARY KEY, make TEXT NOT NULL)");
+        awaitReplica(0);
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (dataSource != null) dataSource.close();
+        replica.stop();
+        primary.stop();
+        network.close();
+    }
+
+    @Test
+    @Order(1)
+    void testReadGoesToReplica() {
+        assertTrue(inRecovery(true));
+        assertFalse(inRecovery(false));
+    }
+
+    @Test
+    @Order(2)
+    void testReadAfterWriteGoesToPrimaryUntilReplicaCatchesUp() {
+        primaryTemplate.update("INSERT INTO car (make) VALUES ('Toyota')");
+        writeTracker.recordWrite(RoutingContext.ANONYMOUS);
+        var lastWrite = writeTracker.lastWriteLsn(RoutingContext.ANONYMOUS);
+
+        assertTrue(lastWrite > 0);
+        assertFalse(inRecovery(true));
+        assertEquals(1, countCars());
+
+        awaitReplica(lastWrite);
+        assertTrue(inRecovery(true));
+        assertEquals(1, countCars());
+    }
+
+    @Test
+    @Order(3)
+    void testReadFallsBackToPrimaryWhenReplicaIsDown() {
+        replica.stop();
+
+        assertFalse(inRecovery(true));
+        assertEquals(1, countCars());
+
+        monitor.checkAll();
+        assertFalse(inRecovery(true));
+    }
+
+    private static boolean inRecovery(boolean readOnly) {
+        return read(readOnly, "SELECT pg_is_in_recovery()", Boolean.class);
+    }
+
+    private static int countCars() {
+        return read(true, "SELECT count(*) FROM car", Integer.class);
+    }
+
+    private static <T> T read(boolean readOnly, String sql, Class<T> type) {
+        var entered = RoutingContext.enter(readOnly);
+        try {
+            return new JdbcTemplate(dataSource).queryForObject(sql, type);
+        } finally {
+            RoutingContext.exit(entered);
+        }
+    }
+
+    private static void awaitReplica(long lastWrite) {
+        var deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            monitor.checkAll();
+            if (monitor.pick(lastWrite) != null) return;
+            sleep();
+        }
+        assertNotNull(monitor.pick(lastWrite), "Replica did not catch up");
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource dataSource(GenericContainer<?> container) {
+        return new DriverManagerDataSource("jdbc:postgresql://" + container.getHost() + ":"
+                + container.getMappedPort(PORT) + "/car_service", "test", "test");
+    }
+}
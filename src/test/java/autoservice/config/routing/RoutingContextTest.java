@@ -0,0 +1,71 @@
+package autoservice.config.routing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoutingContextTest {
+
+    @Test
+    void testOnPrimaryOverridesReadOnlyAndRestoresIt() {
+        var entered = RoutingContext.enter(true);
+        try {
+            assertFalse(RoutingContext.onPrimary(RoutingContext::isReadOnly));
+            assertTrue(RoutingContext.isReadOnly());
+        } finally {
+            RoutingContext.exit(entered);
+        }
+        assertFalse(RoutingContext.isReadOnly());
+    }
+
+    @Test
+    void testNestedReadInsideWriteStaysOnPrimary() {
+        var entered = RoutingContext.enter(false);
+        try {
+            assertFalse(RoutingContext.enter(true));
+            assertFalse(RoutingContext.isReadOnly());
+        } finally {
+            RoutingContext.exit(entered);
+        }
+    }
+
+    @Test
+    void testAnonymousClientsGetSeparateSessions() {
+        assertNotEquals(sessionKeyOf("10.0.0.1"), sessionKeyOf("10.0.0.2"));
+        assertEquals(sessionKeyOf("10.0.0.1"), sessionKeyOf("10.0.0.1"));
+    }
+
+    @Test
+    void testAuthenticatedUserIsKeyedByName() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("ivan", null, List.of()));
+        try {
+            assertEquals("ivan", sessionKeyOf("10.0.0.1"));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static String sessionKeyOf(String remoteAddress) {
+        var request = mock(HttpServletRequest.class);
+        when(request.getRemoteAddr()).thenReturn(remoteAddress);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            return RoutingContext.sessionKey();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
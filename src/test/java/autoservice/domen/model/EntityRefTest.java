@@ -0,0 +1,94 @@
+package autoservice.domen.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityRefTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testLazyRefLoadsOnce() {
+        var value = "car-7";
+        var ref = EntityRef.<String>lazy(7, id -> {
+            loads.incrementAndGet();
+            return Optional.of(value);
+        });
+
+        assertFalse(ref.isLoaded());
+        assertSame(value, ref.get());
+        assertSame(value, ref.get());
+        assertTrue(ref.isLoaded());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testConcurrentFirstAccessLoadsOnce() throws Exception {
+        var threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var ref = EntityRef.<Object>lazy(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(new Object());
+        });
+        var results = new ArrayList<CompletableFuture<Object>>();
+        for (var i = 0; i < threads; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ref.get();
+            }, executor));
+        }
+        start.countDown();
+
+        var first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (var result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testMissingEntityThrowsAndRetriesLater() {
+        var ref = EntityRef.<String>lazy(404, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThrows(IllegalStateException.class, ref::get);
+        assertThrows(IllegalStateException.class, ref::get);
+        assertFalse(ref.isLoaded());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testIdOnlyRefIsNotLoadable() {
+        var ref = EntityRef.<String>ofId(3);
+
+        assertEquals(3, ref.getId());
+        assertThrows(IllegalStateException.class, ref::get);
+    }
+
+    @Test
+    void testEqualityById() {
+        assertEquals(EntityRef.ofId(5), EntityRef.of(5, "loaded"));
+        assertEquals(EntityRef.ofId(5).hashCode(), EntityRef.lazy(5, id -> Optional.empty()).hashCode());
+    }
+}